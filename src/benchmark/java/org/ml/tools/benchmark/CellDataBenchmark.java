@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.ml.tools.DataType;
+import org.ml.tools.excel.ExcelCellData;
+import org.ml.tools.excel.ExcelTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Value extraction with {@link ExcelCellData#getValue(DataType)} for each
+ * data type from the cells it is typically read from: numeric and formula
+ * cells for the numeric types, date formatted cells for TypeDate and
+ * TypeTimestamp, boolean cells for TypeBoolean and string cells for the string
+ * types. TypeURL and TypeUndefined are not supported by getValue(), it throws
+ * an UnsupportedOperationException for them with any cell type.
+ *
+ * @author Dr. Matthias Laux
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CellDataBenchmark {
+
+    @Param({"TypeInteger", "TypeIntegerPercentage", "TypeLong", "TypeDouble", "TypeDoublePercentage", "TypeDate", "TypeTimestamp", "TypeBoolean", "TypeString", "TypeEmail"})
+    public DataType dataType;
+    @Param({"100000"})
+    public int rows;
+    private Cell[] cells;
+
+    /**
+     *
+     * @throws IOException
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Workbook workbook = ExcelTools.getWorkbook(WorkbookFixtures.getWorkbook(rows));
+        Sheet sheet = workbook.getSheet(WorkbookFixtures.SHEET_NAME);
+        int[] columns;
+        switch (dataType) {
+            case TypeBoolean:
+                columns = new int[]{WorkbookFixtures.FLAG_COLUMN};
+                break;
+            case TypeDate:
+            case TypeTimestamp:
+                columns = new int[]{WorkbookFixtures.BOOKED_COLUMN};
+                break;
+            case TypeString:
+            case TypeEmail:
+                columns = new int[]{WorkbookFixtures.NAME_COLUMN, WorkbookFixtures.CODE_COLUMN};
+                break;
+            default:
+                columns = new int[]{WorkbookFixtures.AMOUNT_COLUMN, WorkbookFixtures.TOTAL_COLUMN};
+        }
+        List<Cell> cellList = new ArrayList<>();
+        for (int r = 1; r <= sheet.getLastRowNum(); r++) {
+            Row row = sheet.getRow(r);
+            for (int c : columns) {
+                Cell cell = row.getCell(c);
+                if (cell != null) {
+                    cellList.add(cell);
+                }
+            }
+        }
+        cells = cellList.toArray(new Cell[0]);
+        WorkbookFixtures.release(workbook);     // The cells stay in memory
+    }
+
+    /**
+     * All cells with a reused {@link ExcelCellData} instance
+     *
+     * @param blackhole
+     */
+    @Benchmark
+    public void getValue(Blackhole blackhole) {
+        ExcelCellData cellData = new ExcelCellData();
+        for (Cell cell : cells) {
+            blackhole.consume(cellData.setCell(cell).getValue(dataType));
+        }
+    }
+
+    /**
+     * All cells with a new {@link ExcelCellData} instance per cell
+     *
+     * @param blackhole
+     */
+    @Benchmark
+    public void getValueNewInstance(Blackhole blackhole) {
+        for (Cell cell : cells) {
+            blackhole.consume(new ExcelCellData(cell).getValue(dataType));
+        }
+    }
+}
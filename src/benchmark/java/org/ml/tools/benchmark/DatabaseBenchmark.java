@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.benchmark;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.ml.tools.ConnectionData;
+import org.ml.tools.excel.ExcelDatabaseHandler;
+import org.ml.tools.excel.ExcelTools;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Loading the sheets of the {@link WorkbookFixtures} into an embedded H2
+ * in-memory database with the different load paths of
+ * {@link ExcelDatabaseHandler}. Each invocation (re)creates the table.
+ *
+ * @author Dr. Matthias Laux
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class DatabaseBenchmark {
+
+    public static final String TABLE_NAME = "BENCHMARK";
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+    @Param({"4"})
+    public int workers;
+    private Path path;
+    private Workbook workbook;
+    private Sheet sheet;
+    private ExcelDatabaseHandler handler;
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        path = WorkbookFixtures.getWorkbook(rows);
+        workbook = ExcelTools.getWorkbook(path);
+        sheet = workbook.getSheet(WorkbookFixtures.SHEET_NAME);
+        handler = new ExcelDatabaseHandler(new ConnectionData("org.h2.Driver", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1", "sa", ""));
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        WorkbookFixtures.release(workbook);
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Benchmark
+    public void saveExcelSheetToDatabase() throws Exception {
+        handler.saveExcelSheetToDatabase(sheet, TABLE_NAME);
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Benchmark
+    public void bulkLoadExcelSheetToDatabase() throws Exception {
+        handler.bulkLoadExcelSheetToDatabase(sheet, TABLE_NAME);
+    }
+
+    /**
+     * Streams the sheet from the file, i. e. includes reading the file
+     *
+     * @throws Exception
+     */
+    @Benchmark
+    public void pipelineExcelSheetToDatabase() throws Exception {
+        handler.pipelineExcelSheetToDatabase(path, WorkbookFixtures.SHEET_NAME, TABLE_NAME, workers);
+    }
+}
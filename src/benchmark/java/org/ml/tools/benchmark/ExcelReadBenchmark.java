@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.ml.tools.excel.ExcelTools;
+import org.ml.tools.excel.ParsedSheet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading and parsing complete sheets of the {@link WorkbookFixtures}
+ *
+ * @author Dr. Matthias Laux
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ExcelReadBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+    private Path path;
+    private Workbook workbook;
+    private Sheet sheet;
+
+    /**
+     *
+     * @throws IOException
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = WorkbookFixtures.getWorkbook(rows);
+        workbook = ExcelTools.getWorkbook(path);
+        sheet = workbook.getSheet(WorkbookFixtures.SHEET_NAME);
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        WorkbookFixtures.release(workbook);
+    }
+
+    /**
+     *
+     * @return
+     * @throws IOException
+     */
+    @Benchmark
+    public int getWorkbook() throws IOException {
+        Workbook loadedWorkbook = ExcelTools.getWorkbook(path);
+        try {
+            return loadedWorkbook.getSheet(WorkbookFixtures.SHEET_NAME).getLastRowNum();
+        } finally {
+            WorkbookFixtures.release(loadedWorkbook);
+        }
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Benchmark
+    public List<List<String>> getParsedSheet() {
+        return ExcelTools.getParsedSheet(sheet);
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Benchmark
+    public List<List<String>> getParsedSheet2() {
+        return ExcelTools.getParsedSheet2(sheet);
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Benchmark
+    public ParsedSheet getColumnarSheet() {
+        return new ParsedSheet(sheet);
+    }
+
+    /**
+     * Streaming read from the file, including the unzipping and XML parsing
+     * which {@link #getParsedSheet()} does not have to do
+     *
+     * @return
+     * @throws IOException
+     */
+    @Benchmark
+    public long streamSheet() throws IOException {
+        try (Stream<List<String>> rowStream = ExcelTools.streamSheet(path, WorkbookFixtures.SHEET_NAME)) {
+            return rowStream.mapToInt(List::size).sum();
+        }
+    }
+}
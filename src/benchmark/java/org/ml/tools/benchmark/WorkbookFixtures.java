@@ -0,0 +1,163 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+/**
+ * Synthetic XLSX workbooks for the benchmarks. Each workbook has a single
+ * sheet with a header row and the given number of data rows with the columns
+ * <ul>
+ * <li>Id: integer</li>
+ * <li>Amount: double, blank in every 10th row</li>
+ * <li>Name: string from a pool of 1000 values</li>
+ * <li>Code: unique string</li>
+ * <li>Flag: boolean</li>
+ * <li>Booked: date</li>
+ * <li>Total: formula <code>Id * Amount</code> with cached result</li>
+ * </ul>
+ * The files are generated once and kept in the directory given by the system
+ * property {@link #FIXTURE_DIRECTORY_PROPERTY} (default
+ * <code>target/benchmark-fixtures</code>).
+ *
+ * @author Dr. Matthias Laux
+ */
+public final class WorkbookFixtures {
+
+    public static final String FIXTURE_DIRECTORY_PROPERTY = "benchmark.fixtures";
+    public static final String SHEET_NAME = "data";
+    public static final int ID_COLUMN = 0;
+    public static final int AMOUNT_COLUMN = 1;
+    public static final int NAME_COLUMN = 2;
+    public static final int CODE_COLUMN = 3;
+    public static final int FLAG_COLUMN = 4;
+    public static final int BOOKED_COLUMN = 5;
+    public static final int TOTAL_COLUMN = 6;
+    private static final String[] HEADER = {"Id", "Amount", "Name", "Code", "Flag", "Booked", "Total"};
+    private static final LocalDate FIRST_DAY = LocalDate.of(2000, 1, 1);
+
+    /**
+     *
+     */
+    private WorkbookFixtures() {
+    }
+
+    /**
+     * The workbook with the given number of data rows; it is generated if it
+     * does not exist yet
+     *
+     * @param rows
+     * @return
+     * @throws IOException
+     */
+    public static synchronized Path getWorkbook(int rows) throws IOException {
+        if (rows <= 0) {
+            throw new IllegalArgumentException("rows must be > 0");
+        }
+        Path directory = Paths.get(System.getProperty(FIXTURE_DIRECTORY_PROPERTY, "target/benchmark-fixtures"));
+        Path path = directory.resolve("workbook-" + rows + ".xlsx");
+        if (!Files.exists(path)) {
+            Files.createDirectories(directory);
+            Path temporaryPath = Files.createTempFile(directory, "workbook-", ".tmp");
+            try {
+                writeWorkbook(rows, temporaryPath);
+                Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporaryPath);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Release a workbook loaded with
+     * {@link org.ml.tools.excel.ExcelTools#getWorkbook(Path)} without writing
+     * it back to the fixture file
+     *
+     * @param workbook
+     * @throws IOException
+     */
+    public static void release(Workbook workbook) throws IOException {
+        if (workbook instanceof XSSFWorkbook) {
+            ((XSSFWorkbook) workbook).getPackage().revert();
+        } else {
+            workbook.close();
+        }
+    }
+
+    /**
+     *
+     * @param rows
+     * @param path
+     * @throws IOException
+     */
+    private static void writeWorkbook(int rows, Path path) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+        try (OutputStream stream = Files.newOutputStream(path)) {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("yyyy-mm-dd"));
+            Sheet sheet = workbook.createSheet(SHEET_NAME);
+
+            Row row = sheet.createRow(0);
+            for (int c = 0; c < HEADER.length; c++) {
+                row.createCell(c).setCellValue(HEADER[c]);
+            }
+
+            for (int r = 1; r <= rows; r++) {
+                row = sheet.createRow(r);
+                double amount = (r % 100) * 0.25d;
+                row.createCell(ID_COLUMN).setCellValue(r);
+                if (r % 10 != 0) {
+                    row.createCell(AMOUNT_COLUMN).setCellValue(amount);
+                }
+                row.createCell(NAME_COLUMN).setCellValue("name " + (r % 1000));
+                row.createCell(CODE_COLUMN).setCellValue("C" + r);
+                row.createCell(FLAG_COLUMN).setCellValue(r % 2 == 0);
+                Cell cell = row.createCell(BOOKED_COLUMN);
+                cell.setCellValue(FIRST_DAY.plusDays(r % 10000));
+                cell.setCellStyle(dateStyle);
+                cell = row.createCell(TOTAL_COLUMN);
+                cell.setCellFormula("A" + (r + 1) + "*B" + (r + 1));
+                cell.setCellValue(r % 10 != 0 ? r * amount : 0.0d);    // The cached result
+            }
+            workbook.write(stream);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+}
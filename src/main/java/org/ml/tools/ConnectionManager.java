@@ -89,12 +89,30 @@ public class ConnectionManager {
      */
     public Connection getConnection() throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException {
         if (myConnection == null) {
-            DriverManager.registerDriver((Driver) Class.forName(myConnectionData.getDatabaseDriver()).newInstance());
-            myConnection = DriverManager.getConnection(myConnectionData.getDatabaseURL(), myConnectionData.getUsername(), myConnectionData.getPassword());
+            myConnection = createConnection();
         }
         return myConnection;
     }
 
+    /**
+     * Open an additional connection which is not shared and not cached, e. g.
+     * for work in parallel threads. The caller is responsible for closing it.
+     * This requires initialization with {@link ConnectionData}.
+     *
+     * @return
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws SQLException
+     * @throws InstantiationException
+     */
+    public Connection createConnection() throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException {
+        if (myConnectionData == null) {
+            throw new UnsupportedOperationException("ConnectionManager was initialized with a connection only, can not open additional connections");
+        }
+        DriverManager.registerDriver((Driver) Class.forName(myConnectionData.getDatabaseDriver()).newInstance());
+        return DriverManager.getConnection(myConnectionData.getDatabaseURL(), myConnectionData.getUsername(), myConnectionData.getPassword());
+    }
+
     /**
      * @throws SQLException
      */
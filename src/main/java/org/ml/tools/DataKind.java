@@ -11,6 +11,6 @@ package org.ml.tools;
  */
 public enum DataKind {
     
-    NumericKind, StringKind, BooleanKind, IntegerKind, DoubleKind
+    NumericKind, StringKind, BooleanKind, IntegerKind, DoubleKind, DateKind
     
 }
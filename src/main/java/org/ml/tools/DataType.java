@@ -5,6 +5,7 @@
  */
 package org.ml.tools;
 
+import java.time.LocalDate;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -23,7 +24,10 @@ public enum DataType {
     TypeDouble(0.0d, DoubleKind, NumericKind),
     TypeIntegerPercentage(0, IntegerKind, NumericKind),
     TypeDoublePercentage(0.0d, DoubleKind, NumericKind),
-    TypeUndefined("Undefined", StringKind);
+    TypeUndefined("Undefined", StringKind),
+    TypeLong(0L, IntegerKind, NumericKind),
+    TypeDate(LocalDate.EPOCH, DateKind),
+    TypeTimestamp(LocalDate.EPOCH.atStartOfDay(), DateKind);
 
     Comparable defaultValue;
     Set<DataKind> dataKind = new HashSet<>();
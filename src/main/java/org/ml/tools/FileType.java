@@ -10,6 +10,7 @@ public enum FileType {
     TXT(".txt"),
     XLSX(".xlsx"),
     XLS(".xls"),
+    CSV(".csv"),
     XML(".xml"),
     XSL(".xsl"),
     JSON(".json"),
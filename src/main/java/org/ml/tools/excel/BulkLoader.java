@@ -0,0 +1,67 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A database specific way to load a CSV file into an existing table, used by
+ * {@link ExcelDatabaseHandler#bulkLoadExcelSheetToDatabase(org.apache.poi.ss.usermodel.Sheet, String, int, BulkLoader)}.
+ * <p>
+ * The CSV file is UTF-8 encoded with a header row containing the column
+ * names, fields are separated by {@link #SEPARATOR}. String values are always
+ * enclosed in {@link #QUOTE} (with embedded quotes doubled), an empty field
+ * without quotes is a NULL value. Dates are written as <code>yyyy-mm-dd</code>
+ * and booleans as <code>TRUE</code> / <code>FALSE</code>.
+ *
+ * @author Dr. Matthias Laux
+ */
+public interface BulkLoader {
+
+    char SEPARATOR = ',';
+    char QUOTE = '"';
+
+    /**
+     * @param connection
+     * @return true if this loader can be used with the database of the
+     * connection
+     * @throws SQLException
+     */
+    boolean isSupported(Connection connection) throws SQLException;
+
+    /**
+     * Load the CSV file into the table. This is called within a transaction
+     * which is committed by the caller.
+     *
+     * @param connection
+     * @param tableName
+     * @param columnNames the column names in the order of the CSV fields
+     * @param csvFile
+     * @throws SQLException
+     */
+    void load(Connection connection, String tableName, List<String> columnNames, Path csvFile) throws SQLException;
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+/**
+ * Writes cell values into a workbook, avoiding the per cell overhead of
+ * highly repetitive values such as column names, log levels or enumerated
+ * data.
+ * <p>
+ * For XSSF workbooks, <code>Cell.setCellValue(String)</code> creates a rich
+ * text object for each call and serializes it to look it up in the shared
+ * strings table. This writer remembers the shared strings table index of up
+ * to {@link #MAX_CACHED_STRINGS} distinct strings and points new cells
+ * directly at that index; the shared strings table itself only holds each
+ * string once anyway (its total reference count then only includes the first
+ * use of a cached string, which is informational only). For other workbook
+ * types, the values are written as usual.
+ * <p>
+ * Cell styles are created once per data format and reused, as the number of
+ * styles in a workbook is limited.
+ * <p>
+ * An instance is bound to one workbook and is not thread safe.
+ *
+ * @author Dr. Matthias Laux
+ */
+public class CellWriter {
+
+    public static final int MAX_CACHED_STRINGS = 10000;
+    private final Workbook workbook;
+    private final XSSFWorkbook xssfWorkbook;
+    private final Map<String, String> stringReferences = new HashMap<>();
+    private final Map<String, CellStyle> cellStyles = new HashMap<>();
+    private long stringCount = 0;
+    private long stringHits = 0;
+
+    /**
+     *
+     * @param workbook
+     */
+    public CellWriter(Workbook workbook) {
+        if (workbook == null) {
+            throw new NullPointerException("workbook may not be null");
+        }
+        this.workbook = workbook;
+        this.xssfWorkbook = workbook instanceof XSSFWorkbook ? (XSSFWorkbook) workbook : null;
+    }
+
+    /**
+     * Set a string value; null values leave the cell blank
+     *
+     * @param cell
+     * @param value
+     */
+    public void setCellValue(Cell cell, String value) {
+        if (cell == null) {
+            throw new NullPointerException("cell may not be null");
+        }
+        if (value == null) {
+            cell.setBlank();
+            return;
+        }
+        stringCount++;
+
+        //.... Only fresh cells of our own workbook can be pointed at a cached index
+        if (xssfWorkbook == null || cell.getCellType() != CellType.BLANK || cell.getSheet().getWorkbook() != xssfWorkbook) {
+            cell.setCellValue(value);
+            return;
+        }
+        CTCell ctCell = ((XSSFCell) cell).getCTCell();
+        String reference = stringReferences.get(value);
+        if (reference != null) {
+            ctCell.setT(STCellType.S);
+            ctCell.setV(reference);
+            stringHits++;
+        } else {
+            cell.setCellValue(value);
+            if (stringReferences.size() < MAX_CACHED_STRINGS) {
+                stringReferences.put(value, ctCell.getV());
+            }
+        }
+    }
+
+    /**
+     * Set a numeric value with a shared style for the data format given
+     *
+     * @param cell
+     * @param value
+     * @param dataFormat
+     */
+    public void setCellValue(Cell cell, double value, String dataFormat) {
+        if (cell == null) {
+            throw new NullPointerException("cell may not be null");
+        }
+        cell.setCellValue(value);
+        cell.setCellStyle(getCellStyle(dataFormat));
+    }
+
+    /**
+     * The cell style for a data format, e. g. <code>yyyy-mm-dd</code>; it is
+     * created on first use and shared by all cells using the same format
+     *
+     * @param dataFormat
+     * @return
+     */
+    public CellStyle getCellStyle(String dataFormat) {
+        if (dataFormat == null) {
+            throw new NullPointerException("dataFormat may not be null");
+        }
+        return cellStyles.computeIfAbsent(dataFormat, format -> {
+            CellStyle cellStyle = workbook.createCellStyle();
+            cellStyle.setDataFormat(workbook.createDataFormat().getFormat(format));
+            return cellStyle;
+        });
+    }
+
+    /**
+     *
+     * @return
+     */
+    public Workbook getWorkbook() {
+        return workbook;
+    }
+
+    /**
+     * @return the number of string values written
+     */
+    public long getStringCount() {
+        return stringCount;
+    }
+
+    /**
+     * @return the number of string values written by reference to a cached
+     * shared strings table index
+     */
+    public long getStringHits() {
+        return stringHits;
+    }
+
+    /**
+     * @return the number of distinct strings in the shared strings table of
+     * the workbook, or -1 if the workbook type does not provide it
+     */
+    public int getSharedStringCount() {
+        if (xssfWorkbook != null) {
+            return xssfWorkbook.getSharedStringSource().getUniqueCount();
+        } else if (workbook instanceof SXSSFWorkbook) {
+            return ((SXSSFWorkbook) workbook).getXSSFWorkbook().getSharedStringSource().getUniqueCount();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * @return the number of cell styles in the workbook
+     */
+    public int getCellStyleCount() {
+        return workbook.getNumCellStyles();
+    }
+}
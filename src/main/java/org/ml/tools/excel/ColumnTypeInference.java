@@ -0,0 +1,297 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.ml.tools.DataKind;
+import org.ml.tools.DataType;
+
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Infers a column type for each column of a sheet from all of its cells. Per
+ * column, the narrowest of INTEGER, BIGINT, DOUBLE, BOOLEAN, DATE, TIMESTAMP
+ * and VARCHAR which can hold all non-blank cells is chosen; mixing numbers of
+ * different size widens the type, mixing dates with and without a time of day
+ * gives TIMESTAMP, any other mix falls back to VARCHAR. The maximum
+ * length of the string representation is tracked for the VARCHAR size.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class ColumnTypeInference {
+
+    private static final int MAX_DOUBLE_LENGTH = 24;    // e. g. -1.2345678901234567E-308
+    private static final int MAX_BOOLEAN_LENGTH = 5;
+    private static final int DATE_LENGTH = 10;           // yyyy-MM-dd
+    private final DataType[] types;
+    private final int[] maxLengths;
+
+    /**
+     *
+     * @param columnCount
+     */
+    ColumnTypeInference(int columnCount) {
+        if (columnCount < 0) {
+            throw new IllegalArgumentException("columnCount may not be < 0");
+        }
+        types = new DataType[columnCount];
+        maxLengths = new int[columnCount];
+    }
+
+    /**
+     * Account for one cell of the column given; null and blank cells are
+     * ignored
+     *
+     * @param column
+     * @param cell
+     */
+    void accept(int column, Cell cell) {
+        if (cell == null) {
+            return;
+        }
+        CellType cellType = cell.getCellType();
+        if (cellType == CellType.FORMULA) {
+            cellType = cell.getCachedFormulaResultType();
+        }
+        switch (cellType) {
+            case NUMERIC:
+                if (DateUtil.isCellDateFormatted(cell)) {
+                    double value = cell.getNumericCellValue();
+                    merge(column, value == Math.floor(value) ? DataType.TypeDate : DataType.TypeTimestamp, MAX_DOUBLE_LENGTH);
+                } else {
+                    merge(column, numericType(cell.getNumericCellValue()), MAX_DOUBLE_LENGTH);
+                }
+                break;
+            case BOOLEAN:
+                merge(column, DataType.TypeBoolean, MAX_BOOLEAN_LENGTH);
+                break;
+            case STRING:
+                String value = cell.getStringCellValue();
+                if (!value.trim().isEmpty()) {
+                    merge(column, DataType.TypeString, value.length());
+                }
+                break;
+            default:
+        }
+    }
+
+    /**
+     * Account for one parsed cell value as returned by
+     * {@link ExcelTools#getParsedSheet(org.apache.poi.ss.usermodel.Sheet)}
+     * where the original cell type is no longer known: "true" and "false" are
+     * taken as booleans, anything parsing as a number as a number (Excel dates
+     * are therefore numbers here) except for values with leading zeros like
+     * 00123, which are kept as strings, and ISO dates like 2024-01-31 or
+     * 2024-01-31 12:30:00 as dates, e. g. from CSV files; blank values are
+     * ignored
+     *
+     * @param column
+     * @param value
+     */
+    void accept(int column, String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (value.equals("true") || value.equals("false")) {
+            merge(column, DataType.TypeBoolean, MAX_BOOLEAN_LENGTH);
+            return;
+        }
+        char last = value.charAt(value.length() - 1);
+        if ((Character.isDigit(last) || last == '.') && !hasLeadingZero(value)) {      // Excludes NaN, Infinity and suffixes like 1d accepted by parseDouble()
+            try {
+                merge(column, numericType(Double.parseDouble(value)), MAX_DOUBLE_LENGTH);
+                return;
+            } catch (NumberFormatException ex) {
+                //.... Not a number, hence a string
+            }
+        }
+        if (value.length() >= DATE_LENGTH && value.charAt(4) == '-' && value.charAt(7) == '-') {
+            try {
+                parseTimestamp(value);
+                merge(column, value.length() == DATE_LENGTH ? DataType.TypeDate : DataType.TypeTimestamp, value.length());
+                return;
+            } catch (DateTimeParseException ex) {
+                //.... Not a date, hence a string
+            }
+        }
+        merge(column, DataType.TypeString, value.length());
+    }
+
+    /**
+     * Codes like 00123 or 007 are strings, but not 0 or 0.5
+     *
+     * @param value
+     * @return true if the integer part of the value has a leading zero
+     */
+    private static boolean hasLeadingZero(String value) {
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        return value.length() > start + 1 && value.charAt(start) == '0' && Character.isDigit(value.charAt(start + 1));
+    }
+
+    /**
+     * @param column
+     * @return the inferred type, TypeString for columns without any data
+     */
+    DataType getType(int column) {
+        return types[column] == null ? DataType.TypeString : types[column];
+    }
+
+    /**
+     * @param column
+     * @return true if the column has at least one non-blank cell
+     */
+    boolean hasData(int column) {
+        return types[column] != null;
+    }
+
+    /**
+     * @param column
+     * @return the maximum length of the string representation of the cells
+     */
+    int getMaxLength(int column) {
+        return maxLengths[column];
+    }
+
+    /**
+     * @param column
+     * @return the JDBC type code of the column
+     */
+    int getSqlType(int column) {
+        switch (getType(column)) {
+            case TypeInteger:
+                return Types.INTEGER;
+            case TypeLong:
+                return Types.BIGINT;
+            case TypeDouble:
+                return Types.DOUBLE;
+            case TypeBoolean:
+                return Types.BOOLEAN;
+            case TypeDate:
+                return Types.DATE;
+            case TypeTimestamp:
+                return Types.TIMESTAMP;
+            default:
+                return Types.VARCHAR;
+        }
+    }
+
+    /**
+     * @param column
+     * @param defaultVarcharLength used for columns without any data
+     * @param minVarcharLength the minimum length of VARCHAR columns with data
+     * @return the column type for the DDL statement
+     */
+    String getColumnDefinition(int column, int defaultVarcharLength, int minVarcharLength) {
+        switch (getType(column)) {
+            case TypeInteger:
+                return "INTEGER";
+            case TypeLong:
+                return "BIGINT";
+            case TypeDouble:
+                return "DOUBLE";
+            case TypeBoolean:
+                return "BOOLEAN";
+            case TypeDate:
+                return "DATE";
+            case TypeTimestamp:
+                return "TIMESTAMP";
+            default:
+                return "VARCHAR(" + (types[column] == null ? defaultVarcharLength : Math.max(Math.max(1, minVarcharLength), maxLengths[column])) + ")";
+        }
+    }
+
+    /**
+     * Parse an ISO date, optionally followed by a time of day separated by a
+     * blank or a 'T' as in <code>2024-01-31 12:30:00.5</code>
+     *
+     * @param value
+     * @return the date and time, midnight for dates without a time of day
+     * @throws DateTimeParseException if the value is no such date
+     */
+    static LocalDateTime parseTimestamp(String value) {
+        if (value.length() == DATE_LENGTH) {
+            return LocalDate.parse(value).atStartOfDay();
+        }
+        if (value.length() > DATE_LENGTH && value.charAt(DATE_LENGTH) == ' ') {
+            return LocalDateTime.parse(value.substring(0, DATE_LENGTH) + 'T' + value.substring(DATE_LENGTH + 1));
+        }
+        return LocalDateTime.parse(value);
+    }
+
+    /**
+     *
+     * @param value
+     * @return
+     */
+    private static DataType numericType(double value) {
+        if (value != Math.rint(value) || Double.isInfinite(value)) {
+            return DataType.TypeDouble;
+        }
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return DataType.TypeInteger;
+        }
+        if (value >= Long.MIN_VALUE && value < Long.MAX_VALUE) {
+            return DataType.TypeLong;
+        }
+        return DataType.TypeDouble;
+    }
+
+    /**
+     *
+     * @param column
+     * @param type
+     * @param length
+     */
+    private void merge(int column, DataType type, int length) {
+        maxLengths[column] = Math.max(maxLengths[column], length);
+        DataType current = types[column];
+        if (current == null || current == type) {
+            types[column] = type;
+        } else if (current.isOfDataKind(DataKind.NumericKind) && type.isOfDataKind(DataKind.NumericKind)) {
+            types[column] = widen(current, type);
+        } else if (current.isOfDataKind(DataKind.DateKind) && type.isOfDataKind(DataKind.DateKind)) {
+            types[column] = DataType.TypeTimestamp;
+        } else {
+            types[column] = DataType.TypeString;
+        }
+    }
+
+    /**
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    private static DataType widen(DataType a, DataType b) {
+        if (a == DataType.TypeDouble || b == DataType.TypeDouble) {
+            return DataType.TypeDouble;
+        }
+        return DataType.TypeLong;
+    }
+}
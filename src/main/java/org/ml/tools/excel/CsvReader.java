@@ -0,0 +1,407 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A streaming parser for CSV files according to RFC 4180 which returns the
+ * records with the same semantics as the sheet readers (see
+ * {@link SheetReader}): fields are trimmed, trailing empty fields are removed
+ * and empty records as well as records with a first field starting with a '#'
+ * are skipped.
+ * <p>
+ * Fields are separated by {@link CsvWriter#SEPARATOR}, records by CRLF, LF
+ * or CR. Fields may be enclosed in {@link CsvWriter#QUOTE}s, in which case
+ * they may contain separators, line breaks and quotes (written as two
+ * quotes). The input is
+ * scanned directly in a char buffer; unquoted fields which do not cross a
+ * buffer boundary are created from the buffer without intermediate copies,
+ * fields outside of a {@link SheetSelection} are not created at all. A
+ * leading byte order mark is ignored.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class CsvReader implements SheetReader {
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final Reader reader;
+    private final char separator;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder(100);
+    private final CsvCells cells = new CsvCells();
+    private RowSelector selector = new RowSelector(null);
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfInput = false;
+    private List<String> nextRow;
+    private int recordIndex = -1;
+    private int nextRowIndex = -1;
+    private int rowIndex = -1;
+
+    /**
+     * The trimmed fields of the current record; fields which are not needed
+     * are null
+     */
+    private static final class CsvCells implements RowSelector.RawCells {
+
+        private String[] values = new String[16];
+        private int size = 0;
+
+        private void clear() {
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+
+        private void set(int column, String value) {
+            if (column >= values.length) {
+                values = Arrays.copyOf(values, Math.max(column + 1, 2 * values.length));
+            }
+            values[column] = value;
+            size = Math.max(size, column + 1);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public CellType getCellType(int column) {
+            return getData(column).isEmpty() ? CellType.BLANK : CellType.STRING;
+        }
+
+        @Override
+        public double getNumericValue(int column) {
+            return getCellType(column) == CellType.STRING ? RowSelector.parseNumber(values[column]) : Double.NaN;
+        }
+
+        @Override
+        public String getStringValue(int column) {
+            return getData(column);
+        }
+
+        @Override
+        public boolean getBooleanValue(int column) {
+            return Boolean.parseBoolean(getData(column));
+        }
+
+        @Override
+        public String getData(int column) {
+            return column < size && values[column] != null ? values[column] : "";
+        }
+    }
+
+    /**
+     *
+     * @param reader
+     * @param separator
+     */
+    CsvReader(Reader reader, char separator) {
+        if (reader == null) {
+            throw new NullPointerException("reader may not be null");
+        }
+        if (separator == CsvWriter.QUOTE || separator == '\r' || separator == '\n') {
+            throw new IllegalArgumentException("Illegal separator: " + separator);
+        }
+        this.reader = reader;
+        this.separator = separator;
+    }
+
+    /**
+     * Open a UTF-8 encoded CSV file with the default separator
+     *
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    static CsvReader open(Path path) throws IOException {
+        return open(path, StandardCharsets.UTF_8, CsvWriter.SEPARATOR);
+    }
+
+    /**
+     *
+     * @param path
+     * @param charset
+     * @param separator
+     * @return
+     * @throws IOException
+     */
+    static CsvReader open(Path path, Charset charset, char separator) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        if (charset == null) {
+            throw new NullPointerException("charset may not be null");
+        }
+        return new CsvReader(Files.newBufferedReader(path, charset), separator);
+    }
+
+    /**
+     *
+     * @param selection
+     */
+    @Override
+    public void setSelection(SheetSelection selection) {
+        if (recordIndex >= 0) {
+            throw new IllegalStateException("The selection can not be changed after rows have been read");
+        }
+        selector = new RowSelector(selection);
+    }
+
+    /**
+     * @return the 0-based index of the record last returned by
+     * {@link #next()}, counting all records of the file
+     */
+    @Override
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public boolean hasNext() {
+        try {
+            while (nextRow == null) {
+                if (selector.isAfterRange(recordIndex + 1)) {
+                    return false;
+                }
+                boolean skip = selector.isBeforeRange(recordIndex + 1);
+                if (!readRecord(skip)) {
+                    return false;
+                }
+                recordIndex++;
+                if (!skip) {
+                    nextRow = selector.select(recordIndex, cells);
+                    nextRowIndex = recordIndex;
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return true;
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> row = nextRow;
+        rowIndex = nextRowIndex;
+        nextRow = null;
+        return row;
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        endOfInput = true;
+        position = limit;
+        reader.close();
+    }
+
+    /**
+     * Read the next record; the needed fields are trimmed and stored in the
+     * cells, all other fields are only scanned
+     *
+     * @param skip true if no field of the record is needed
+     * @return false at the end of the input
+     * @throws IOException
+     */
+    private boolean readRecord(boolean skip) throws IOException {
+        if (position == limit && !fill()) {
+            return false;
+        }
+        if (recordIndex < 0 && buffer[position] == BYTE_ORDER_MARK) {
+            position++;
+        }
+        cells.clear();
+        int column = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                return true;
+            }
+            boolean keep = !skip && selector.isNeeded(column);
+            String value;
+            if (buffer[position] == CsvWriter.QUOTE) {
+                position++;
+                value = readQuotedField(keep);
+            } else {
+                value = readField(keep);
+            }
+            if (keep) {
+                cells.set(column, value.trim());
+            }
+            column++;
+            if (position == limit && !fill()) {
+                return true;
+            }
+            char c = buffer[position++];
+            if (c == '\n') {
+                return true;
+            } else if (c == '\r') {
+                if ((position < limit || fill()) && buffer[position] == '\n') {
+                    position++;
+                }
+                return true;
+            }
+            //.... Otherwise c is the separator and the next field follows
+        }
+    }
+
+    /**
+     * Read an unquoted field up to the next separator or line break, which is
+     * not consumed
+     *
+     * @param keep false if the field is only to be skipped
+     * @return the field or null if it is not kept
+     * @throws IOException
+     */
+    private String readField(boolean keep) throws IOException {
+        int start = position;
+        while (true) {
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == separator || c == '\n' || c == '\r') {
+                    if (!keep) {
+                        return null;
+                    }
+                    if (field.length() == 0) {
+                        return new String(buffer, start, position - start);
+                    }
+                    field.append(buffer, start, position - start);
+                    return takeField();
+                }
+                position++;
+            }
+
+            //.... The field crosses the buffer boundary
+            if (keep) {
+                field.append(buffer, start, position - start);
+            }
+            if (!fill()) {
+                return keep ? takeField() : null;
+            }
+            start = 0;
+        }
+    }
+
+    /**
+     * Read a quoted field after the opening quote; characters between the
+     * closing quote and the next separator or line break are appended as is
+     *
+     * @param keep false if the field is only to be skipped
+     * @return the field or null if it is not kept
+     * @throws IOException
+     */
+    private String readQuotedField(boolean keep) throws IOException {
+        int start = position;
+        while (true) {
+            if (position == limit) {
+                if (keep) {
+                    field.append(buffer, start, position - start);
+                }
+                if (!fill()) {
+                    throw new IOException("Unterminated quoted field at the end of the input");
+                }
+                start = 0;
+            }
+            if (buffer[position] == CsvWriter.QUOTE) {
+                if (keep) {
+                    field.append(buffer, start, position - start);
+                }
+                position++;
+                if ((position < limit || fill()) && buffer[position] == CsvWriter.QUOTE) {
+                    start = position++;   // Escaped quote, keep one of them
+                } else {
+                    String value = keep ? takeField() : null;
+                    String rest = readField(keep);
+                    if (!keep) {
+                        return null;
+                    }
+                    return rest.isEmpty() ? value : value + rest;
+                }
+            } else {
+                position++;
+            }
+        }
+    }
+
+    /**
+     *
+     * @return the collected field, the collector is reset
+     */
+    private String takeField() {
+        String value = field.toString();
+        field.setLength(0);
+        return value;
+    }
+
+    /**
+     * Refill the buffer; must only be called when the buffer is exhausted
+     *
+     * @return false at the end of the input
+     * @throws IOException
+     */
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        int count;
+        do {
+            count = reader.read(buffer, 0, buffer.length);
+        } while (count == 0);
+        position = 0;
+        if (count < 0) {
+            limit = 0;
+            endOfInput = true;
+            return false;
+        }
+        limit = count;
+        return true;
+    }
+}
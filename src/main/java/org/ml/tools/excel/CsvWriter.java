@@ -0,0 +1,290 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes CSV files according to RFC 4180: fields are separated by a
+ * separator ({@link #SEPARATOR} by default), records are terminated by CRLF.
+ * Fields containing the separator, quotes or line breaks are enclosed in
+ * quotes with embedded quotes doubled. The output is collected in a char
+ * buffer which is handed to the underlying writer when full.
+ * <p>
+ * The files can be read back with
+ * {@link ExcelTools#streamSheet(Path, String, RowConsumer)}.
+ *
+ * @author Dr. Matthias Laux
+ */
+public final class CsvWriter implements Closeable, Flushable {
+
+    public static final char SEPARATOR = ',';
+    public static final char QUOTE = '"';
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final Writer writer;
+    private final char separator;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position = 0;
+    private boolean firstField = true;
+
+    /**
+     *
+     * @param writer
+     * @param separator
+     */
+    public CsvWriter(Writer writer, char separator) {
+        if (writer == null) {
+            throw new NullPointerException("writer may not be null");
+        }
+        if (separator == QUOTE || separator == '\r' || separator == '\n') {
+            throw new IllegalArgumentException("Illegal separator: " + separator);
+        }
+        this.writer = writer;
+        this.separator = separator;
+    }
+
+    /**
+     * Uses the default separator
+     *
+     * @param writer
+     */
+    public CsvWriter(Writer writer) {
+        this(writer, SEPARATOR);
+    }
+
+    /**
+     * Create (or truncate) a UTF-8 encoded file
+     *
+     * @param path
+     * @throws IOException
+     */
+    public CsvWriter(Path path) throws IOException {
+        this(Files.newBufferedWriter(checkPath(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Append a field to the current record; it is quoted only if required.
+     * A null value is written as an empty field.
+     *
+     * @param value
+     * @return this instance
+     * @throws IOException
+     */
+    public CsvWriter writeField(String value) throws IOException {
+        startField();
+        if (value == null) {
+            return this;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == separator || c == QUOTE || c == '\r' || c == '\n') {
+                appendQuoted(value);
+                return this;
+            }
+        }
+        append(value);
+        return this;
+    }
+
+    /**
+     * Append a field to the current record which is always quoted, e. g. to
+     * distinguish an empty string from an empty (null) field
+     *
+     * @param value
+     * @return this instance
+     * @throws IOException
+     */
+    public CsvWriter writeQuotedField(String value) throws IOException {
+        if (value == null) {
+            throw new NullPointerException("value may not be null");
+        }
+        startField();
+        appendQuoted(value);
+        return this;
+    }
+
+    /**
+     * Terminate the current record
+     *
+     * @return this instance
+     * @throws IOException
+     */
+    public CsvWriter endRow() throws IOException {
+        append('\r');
+        append('\n');
+        firstField = true;
+        return this;
+    }
+
+    /**
+     * Write a complete record
+     *
+     * @param rowData
+     * @return this instance
+     * @throws IOException
+     */
+    public CsvWriter writeRow(List<String> rowData) throws IOException {
+        if (rowData == null) {
+            throw new NullPointerException("rowData may not be null");
+        }
+        for (String value : rowData) {
+            writeField(value);
+        }
+        return endRow();
+    }
+
+    /**
+     * Write all records, e. g. a sheet parsed with
+     * {@link ExcelTools#getParsedSheet(org.apache.poi.ss.usermodel.Sheet)}
+     *
+     * @param rows
+     * @return this instance
+     * @throws IOException
+     */
+    public CsvWriter writeRows(List<List<String>> rows) throws IOException {
+        if (rows == null) {
+            throw new NullPointerException("rows may not be null");
+        }
+        for (List<String> rowData : rows) {
+            writeRow(rowData);
+        }
+        return this;
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        writer.write(buffer, 0, position);
+        position = 0;
+        writer.flush();
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writer.write(buffer, 0, position);
+            position = 0;
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    private void startField() throws IOException {
+        if (firstField) {
+            firstField = false;
+        } else {
+            append(separator);
+        }
+    }
+
+    /**
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void appendQuoted(String value) throws IOException {
+        append(QUOTE);
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == QUOTE) {
+                append(value, start, i + 1);
+                start = i;      // The quote is written a second time with the next chunk
+            }
+        }
+        append(value, start, value.length());
+        append(QUOTE);
+    }
+
+    /**
+     *
+     * @param value
+     * @throws IOException
+     */
+    private void append(String value) throws IOException {
+        append(value, 0, value.length());
+    }
+
+    /**
+     *
+     * @param value
+     * @param start
+     * @param end
+     * @throws IOException
+     */
+    private void append(String value, int start, int end) throws IOException {
+        while (start < end) {
+            if (position == buffer.length) {
+                writer.write(buffer, 0, position);
+                position = 0;
+            }
+            int count = Math.min(end - start, buffer.length - position);
+            value.getChars(start, start + count, buffer, position);
+            position += count;
+            start += count;
+        }
+    }
+
+    /**
+     *
+     * @param c
+     * @throws IOException
+     */
+    private void append(char c) throws IOException {
+        if (position == buffer.length) {
+            writer.write(buffer, 0, position);
+            position = 0;
+        }
+        buffer[position++] = c;
+    }
+
+    /**
+     *
+     * @param path
+     * @return
+     */
+    private static Path checkPath(Path path) {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        return path;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.util.List;
+
+/**
+ * Callback for {@link ExcelTools#diff(java.nio.file.Path, java.nio.file.Path, String, List, DiffConsumer)};
+ * it receives the differences between two versions of a sheet. The rows are
+ * the parsed rows of the respective sheet version.
+ *
+ * @author Dr. Matthias Laux
+ */
+public interface DiffConsumer {
+
+    /**
+     * A row with a key which is only present in the new sheet
+     *
+     * @param rowIndex the 0-based index of the row in the new sheet
+     * @param rowData
+     */
+    void added(int rowIndex, List<String> rowData);
+
+    /**
+     * A row with a key which is only present in the old sheet
+     *
+     * @param rowIndex the 0-based index of the row in the old sheet
+     * @param rowData
+     */
+    void removed(int rowIndex, List<String> rowData);
+
+    /**
+     * A row with a key present in both sheets and different values
+     *
+     * @param oldRowIndex the 0-based index of the row in the old sheet
+     * @param oldRowData
+     * @param newRowIndex the 0-based index of the row in the new sheet
+     * @param newRowData
+     */
+    void changed(int oldRowIndex, List<String> oldRowData, int newRowIndex, List<String> newRowData);
+}
@@ -23,12 +23,20 @@
  */
 package org.ml.tools.excel;
 
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.ml.tools.DataType;
 import org.ml.tools.logging.LoggerFactory;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
 import java.util.logging.Logger;
 
 /**
@@ -42,26 +50,45 @@ public class ExcelCellData {
 //    public static final String ERROR_CONDITION_NUMBER_FORMAT = "ERROR-NUMBER-FORMAT";
 //    public static final String ERROR_CONDITION_ILLEGAL_STATE = "ERROR-ILLEGAL-STATE";
 //    public static final double ERROR_CONDITION_VALUE = Double.NEGATIVE_INFINITY;
+    private static final ThreadLocal<DataFormatter> DATA_FORMATTER = ThreadLocal.withInitial(DataFormatter::new);
+    private static final long MILLIS_PER_DAY = 86400000L;
+    private static final long EPOCH_DAY_1900 = 25569L;      // Serial number of 1970-01-01 in the 1900 date system
+    private static final long EPOCH_DAY_1904 = 24107L;      // Serial number of 1970-01-01 in the 1904 date system
     private Cell cell;
     private boolean emptyCell = true;
-    private final DataFormatter dataFormatter = new DataFormatter();
 
     /**
      *
      * @param cell
      */
     public ExcelCellData(Cell cell) {
+        setCell(cell);
+    }
+
+    /**
+     * Create an instance without a cell (i. e. an empty cell) which can be
+     * pointed at cells with {@link #setCell(Cell)}. This allows to read many
+     * cells with a single instance.
+     */
+    public ExcelCellData() {
+    }
+
+    /**
+     * Point this instance at another cell
+     *
+     * @param cell
+     * @return this instance
+     */
+    public ExcelCellData setCell(Cell cell) {
         if (cell == null) {
             throw new NullPointerException("cell may not be null");
         }
+        if (this == EMPTY_CELL) {
+            throw new UnsupportedOperationException("EMPTY_CELL can not be pointed at a cell");
+        }
         this.cell = cell;
         this.emptyCell = false;
-    }
-
-    /**
-     * Just for internal use to create an empty cell
-     */
-    private ExcelCellData() {
+        return this;
     }
 
     /**
@@ -71,7 +98,7 @@ public class ExcelCellData {
      */
     public Comparable getValue() {
         throw new UnsupportedOperationException("Not yet implemented");
-//        rawData = dataFormatter.formatCellValue(cell).trim();
+//        rawData = DATA_FORMATTER.get().formatCellValue(cell).trim();
 //        return null;
     }
 
@@ -84,20 +111,10 @@ public class ExcelCellData {
         if (isEmptyCell()) {
             return (String) DataType.TypeString.getDefaultValue();
         }
-        switch (cell.getCellType()) {
+        CellType cellType = getCellType();
+        switch (cellType) {
             case BOOLEAN:
                 return String.valueOf(cell.getBooleanCellValue());
-            case FORMULA:      // One of CellType.NUMERIC, CellType.STRING, CellType.BOOLEAN, CellType.ERROR
-                int a1 = 0;
-                try {
-                    return String.valueOf(cell.getNumericCellValue());
-                } catch (IllegalStateException ex1) {
-                    try {
-                        return String.valueOf(cell.getBooleanCellValue());
-                    } catch (IllegalStateException ex2) {
-                        return cell.getStringCellValue();
-                    }
-                }
             case NUMERIC:
                 return String.valueOf(cell.getNumericCellValue());
             case BLANK:
@@ -105,9 +122,9 @@ public class ExcelCellData {
                 return cell.getStringCellValue();
             case ERROR:
             case _NONE:
-                throw new UnsupportedOperationException("Unsupported POI cell type: " + cell.getCellType());
+                throw new UnsupportedOperationException("Unsupported POI cell type: " + cellType);
             default:
-                throw new UnsupportedOperationException("Unknown POI cell type: " + cell.getCellType());
+                throw new UnsupportedOperationException("Unknown POI cell type: " + cellType);
         }
     }
 
@@ -119,7 +136,7 @@ public class ExcelCellData {
         if (isEmptyCell()) {
             return (String) DataType.TypeString.getDefaultValue();
         } else {
-            return dataFormatter.formatCellValue(cell).trim();
+            return DATA_FORMATTER.get().formatCellValue(cell).trim();
         }
     }
 
@@ -132,7 +149,8 @@ public class ExcelCellData {
             return (Double) DataType.TypeDouble.getDefaultValue();
         }
 
-        switch (cell.getCellType()) {
+        CellType cellType = getCellType();
+        switch (cellType) {
             case STRING:
                 int a0 = 0;   // Dummy for correct Netbeans formatting
                 try {
@@ -142,25 +160,18 @@ public class ExcelCellData {
                 }
             case NUMERIC:
                 return cell.getNumericCellValue();
-            case FORMULA:      // One of CellType.NUMERIC, CellType.STRING, CellType.BOOLEAN, CellType.ERROR
-                int a1 = 0;   // Dummy for correct Netbeans formatting
-                try {
-                    return cell.getNumericCellValue();
-                } catch (IllegalStateException ex1) {
-                    try {
-                        return Double.valueOf(cell.getStringCellValue());
-                    } catch (IllegalStateException ex2) {
-                        return (Double) DataType.TypeDouble.getDefaultValue();
-                    }
-                }
             case BOOLEAN:
             case BLANK:
                 return (Double) DataType.TypeDouble.getDefaultValue();
             case ERROR:
+                if (cell.getCellType() == CellType.FORMULA) {     // A formula with an error result counts as no number
+                    return (Double) DataType.TypeDouble.getDefaultValue();
+                }
+                throw new UnsupportedOperationException("Unsupported POI cell type: " + cellType);
             case _NONE:
-                throw new UnsupportedOperationException("Unsupported POI cell type: " + cell.getCellType());
+                throw new UnsupportedOperationException("Unsupported POI cell type: " + cellType);
             default:
-                throw new UnsupportedOperationException("Unknown POI cell type: " + cell.getCellType());
+                throw new UnsupportedOperationException("Unknown POI cell type: " + cellType);
         }
 
     }
@@ -182,11 +193,7 @@ public class ExcelCellData {
             return targetDataType.getDefaultValue();
         }
 
-        String rawData = dataFormatter.formatCellValue(cell).trim();
-        CellType cellType = cell.getCellType();
-        if (cell.getCellType().equals(CellType.FORMULA)) {
-            cellType = cell.getCachedFormulaResultType();   // One of CellType.NUMERIC, CellType.STRING, CellType.BOOLEAN, CellType.ERROR
-        }
+        CellType cellType = getCellType();
 
         switch (cellType) {
 
@@ -201,10 +208,16 @@ public class ExcelCellData {
                         return (int) cell.getNumericCellValue();
                     case TypeIntegerPercentage:
                         return  (int)Math.round(100.0d * cell.getNumericCellValue());
+                    case TypeLong:
+                        return (long) cell.getNumericCellValue();
+                    case TypeDate:
+                        return LocalDate.ofEpochDay(getEpochDay());
+                    case TypeTimestamp:
+                        return toLocalDateTime(getEpochMilli());
                     case TypeString:
                         return String.valueOf(cell.getNumericCellValue());
                     default:
-                        throw new UnsupportedOperationException("Can not extract " + targetDataType + " from raw data " + rawData);
+                        throw new UnsupportedOperationException("Can not extract " + targetDataType + " from raw data " + getRawData());
                 }
 
             case BOOLEAN:
@@ -217,7 +230,7 @@ public class ExcelCellData {
                     case TypeInteger:
                         return cell.getBooleanCellValue() ? 1 : 0;
                     default:
-                        throw new UnsupportedOperationException("Can not extract " + targetDataType + " from raw data " + rawData);
+                        throw new UnsupportedOperationException("Can not extract " + targetDataType + " from raw data " + getRawData());
                 }
 
             case BLANK:
@@ -226,14 +239,7 @@ public class ExcelCellData {
 
             case STRING:
 
-                String stringValue = "";
-                try {
-                     stringValue = cell.getStringCellValue().trim();
-                } catch (Exception exp) {
-                    System.out.println(exp.getMessage());
-                    exp.printStackTrace();
-                    System.exit(2);
-                }
+                String stringValue = cell.getStringCellValue().trim();
                 switch (targetDataType) {
                     case TypeDouble:
                         int a1 = 0;   // Dummy for correct Netbeans formatting
@@ -263,6 +269,13 @@ public class ExcelCellData {
                         } catch (NumberFormatException ex) {
                             return targetDataType.getDefaultValue();
                         }
+                    case TypeLong:
+                        int a6 = 0;   // Dummy for correct Netbeans formatting
+                        try {
+                            return Long.valueOf(stringValue);
+                        } catch (NumberFormatException ex) {
+                            return targetDataType.getDefaultValue();
+                        }
                     case TypeBoolean:
                         int a5 = 0;   // Dummy for correct Netbeans formatting
                         try {
@@ -270,12 +283,16 @@ public class ExcelCellData {
                         } catch (NumberFormatException ex) {
                             return targetDataType.getDefaultValue();
                         }
+                    case TypeDate:
+                        return LocalDate.ofEpochDay(getEpochDay());
+                    case TypeTimestamp:
+                        return toLocalDateTime(getEpochMilli());
                     case TypeEmail:
                     case TypeString:
                         return stringValue;
                     case TypeUndefined:
                     default:
-                        throw new UnsupportedOperationException("Can not extract " + targetDataType + " from raw data " + rawData);
+                        throw new UnsupportedOperationException("Can not extract " + targetDataType + " from raw data " + getRawData());
                 }
 
             case ERROR:
@@ -291,6 +308,155 @@ public class ExcelCellData {
         }
     }
 
+    /**
+     * The date of a date cell as days since 1970-01-01. Numeric cells are
+     * converted from the Excel serial number using the date system (1900 or
+     * 1904) of the workbook, the time of day is dropped. String cells are
+     * parsed as ISO dates (<code>yyyy-MM-dd</code>, optionally followed by a
+     * time). Empty cells and strings which can not be parsed yield the default
+     * of TypeDate, i. e. 0. No objects are created for numeric cells.
+     *
+     * @return the epoch day
+     */
+    public long getEpochDay() {
+        if (isEmptyCell()) {
+            return 0L;
+        }
+        CellType cellType = getCellType();
+        switch (cellType) {
+            case NUMERIC:
+                return toEpochDay(cell.getNumericCellValue(), isDate1904(cell));
+            case STRING:
+                int a0 = 0;   // Dummy for correct Netbeans formatting
+                try {
+                    return ColumnTypeInference.parseTimestamp(cell.getStringCellValue().trim()).toLocalDate().toEpochDay();
+                } catch (DateTimeParseException ex) {
+                    return 0L;
+                }
+            case BOOLEAN:
+            case BLANK:
+                return 0L;
+            case ERROR:
+            case _NONE:
+                throw new UnsupportedOperationException("Unsupported POI cell type: " + cellType);
+            default:
+                throw new UnsupportedOperationException("Unknown POI cell type: " + cellType);
+        }
+    }
+
+    /**
+     * The date and time of a date cell as milliseconds since
+     * 1970-01-01T00:00. Excel dates carry no time zone, the value is therefore
+     * the local date and time taken as UTC, which is what
+     * {@link LocalDateTime#toEpochSecond(ZoneOffset)} with ZoneOffset.UTC
+     * gives. Conversion rules are the same as for {@link #getEpochDay()}, the
+     * fraction of the day is rounded to milliseconds.
+     *
+     * @return the epoch milliseconds
+     */
+    public long getEpochMilli() {
+        if (isEmptyCell()) {
+            return 0L;
+        }
+        CellType cellType = getCellType();
+        switch (cellType) {
+            case NUMERIC:
+                return toEpochMilli(cell.getNumericCellValue(), isDate1904(cell));
+            case STRING:
+                int a0 = 0;   // Dummy for correct Netbeans formatting
+                try {
+                    LocalDateTime dateTime = ColumnTypeInference.parseTimestamp(cell.getStringCellValue().trim());
+                    return dateTime.toEpochSecond(ZoneOffset.UTC) * 1000L + dateTime.getNano() / 1000000;
+                } catch (DateTimeParseException ex) {
+                    return 0L;
+                }
+            case BOOLEAN:
+            case BLANK:
+                return 0L;
+            case ERROR:
+            case _NONE:
+                throw new UnsupportedOperationException("Unsupported POI cell type: " + cellType);
+            default:
+                throw new UnsupportedOperationException("Unknown POI cell type: " + cellType);
+        }
+    }
+
+    /**
+     * Convert an Excel serial date number into days since 1970-01-01. In the
+     * 1900 date system, serial numbers below 61 account for the non-existent
+     * 1900-02-29 which Excel inherited from Lotus 1-2-3.
+     *
+     * @param excelDate
+     * @param use1904windowing
+     * @return the epoch day
+     */
+    public static long toEpochDay(double excelDate, boolean use1904windowing) {
+        long day = (long) Math.floor(excelDate);
+        if (use1904windowing) {
+            return day - EPOCH_DAY_1904;
+        }
+        return day < 61 ? day - EPOCH_DAY_1900 + 1 : day - EPOCH_DAY_1900;
+    }
+
+    /**
+     * Convert an Excel serial date number into milliseconds since
+     * 1970-01-01T00:00, see {@link #toEpochDay(double, boolean)}
+     *
+     * @param excelDate
+     * @param use1904windowing
+     * @return the epoch milliseconds
+     */
+    public static long toEpochMilli(double excelDate, boolean use1904windowing) {
+        double wholeDays = Math.floor(excelDate);
+        return toEpochDay(wholeDays, use1904windowing) * MILLIS_PER_DAY + Math.round((excelDate - wholeDays) * MILLIS_PER_DAY);
+    }
+
+    /**
+     * Excel dates have no time zone, hence they are represented as
+     * LocalDateTime which JDBC drivers store unchanged in a TIMESTAMP column
+     *
+     * @param epochMilli as returned by {@link #getEpochMilli()}
+     * @return
+     */
+    static LocalDateTime toLocalDateTime(long epochMilli) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMilli, 1000L), (int) Math.floorMod(epochMilli, 1000L) * 1000000, ZoneOffset.UTC);
+    }
+
+    /**
+     * The Workbook interface does not expose the date system, hence the
+     * lookup per implementation
+     *
+     * @param cell
+     * @return true if the workbook of the cell uses the 1904 date system
+     */
+    private static boolean isDate1904(Cell cell) {
+        Workbook workbook = cell.getSheet().getWorkbook();
+        if (workbook instanceof XSSFWorkbook) {
+            return ((XSSFWorkbook) workbook).isDate1904();
+        } else if (workbook instanceof SXSSFWorkbook) {
+            return ((SXSSFWorkbook) workbook).getXSSFWorkbook().isDate1904();
+        } else if (workbook instanceof HSSFWorkbook) {
+            return ((HSSFWorkbook) workbook).getInternalWorkbook().isUsing1904DateWindowing();
+        }
+        return false;
+    }
+
+    /**
+     * The type of the cell value; for formula cells this is the type of the
+     * cached formula result, i. e. one of CellType.NUMERIC, CellType.STRING,
+     * CellType.BOOLEAN or CellType.ERROR. The cached results can be refreshed
+     * with {@link ExcelTools#evaluateFormulas(org.apache.poi.ss.usermodel.Sheet)}.
+     *
+     * @return
+     */
+    public CellType getCellType() {
+        if (isEmptyCell()) {
+            return CellType.BLANK;
+        }
+        CellType cellType = cell.getCellType();
+        return cellType == CellType.FORMULA ? cell.getCachedFormulaResultType() : cellType;
+    }
+
     /**
      *
      * @return
@@ -23,21 +23,45 @@
  */
 package org.ml.tools.excel;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 import org.ml.tools.ConnectionData;
 import org.ml.tools.ConnectionManager;
+import org.ml.tools.DataKind;
+import org.ml.tools.DataType;
 import org.ml.tools.logging.LoggerFactory;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
@@ -46,6 +70,7 @@ import static org.apache.poi.ss.usermodel.CellType.STRING;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.ml.tools.FileType;
 
 /**
@@ -55,7 +80,47 @@ import org.ml.tools.FileType;
 public class ExcelDatabaseHandler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ExcelDatabaseHandler.class.getName());
+    public static final int DEFAULT_ROW_WINDOW = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+    public static final int DEFAULT_VARCHAR_LENGTH = 200;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final int DEFAULT_COMMIT_INTERVAL = 10000;
+    public static final String ROW_HASH_COLUMN = "ROW_HASH";
+    public static final String CHECKPOINT_TABLE = "EXCEL_IMPORT_CHECKPOINT";
+    private static final long SHUTDOWN_TIMEOUT = 60;
     private ConnectionData connectionData;
+    private final Map<Connection, TableMetadata> metadataCache = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * The work done for one table in the parallel modes
+     *
+     * @param <R>
+     */
+    @FunctionalInterface
+    private interface TableTask<R> {
+
+        R process(String tableName, Connection connection) throws Exception;
+    }
+
+    /**
+     * The layout of a sheet and the table created for it
+     */
+    private static final class SheetTable {
+
+        private final String tableName;
+        private final String[] columnNames;
+        private final int startCol;
+        private final int endCol;
+        private final ColumnTypeInference inference;
+
+        private SheetTable(String tableName, String[] columnNames, int startCol, int endCol, ColumnTypeInference inference) {
+            this.tableName = tableName;
+            this.columnNames = columnNames;
+            this.startCol = startCol;
+            this.endCol = endCol;
+            this.inference = inference;
+        }
+    }
 
     /**
      *
@@ -84,21 +149,16 @@ public class ExcelDatabaseHandler {
         }
 
         Connection connection = ConnectionManager.getInstance().getConnection();
-        DatabaseMetaData metadata = connection.getMetaData();
 
         //.... Collect tablenames in DB
-        String[] names = {"TABLE"};   // Could also use null instead here as argument
-        ResultSet rs = metadata.getTables(null, null, null, names);
-        Set<String> databaseTableNames = new HashSet<>();
-        while (rs.next()) {
-            databaseTableNames.add(rs.getString("TABLE_NAME"));
-        }
+        Set<String> databaseTableNames = getMetadata(connection).getTableNames(connection);
 
         //.... Process each table into a separate sheet
         Workbook workbook = ExcelTools.getNewWorkbook(FileType.XLSX);
+        CellWriter cellWriter = new CellWriter(workbook);
         for (String tableName : tableNames) {
             if (databaseTableNames.contains(tableName)) {
-                addSheet(workbook, tableName, metadata, connection);
+                addSheet(cellWriter, tableName, connection, 0);
             } else {
                 LOGGER.log(Level.SEVERE, "Database does not contain a table named {0}", tableName);
             }
@@ -123,22 +183,16 @@ public class ExcelDatabaseHandler {
         }
 
         Connection connection = ConnectionManager.getInstance().getConnection();
-        DatabaseMetaData metadata = connection.getMetaData();
 
         //.... Collect tablenames in DB
-        String[] names = {"TABLE"};   // Could also use null instead here as argument
-        ResultSet rs = metadata.getTables(null, null, null, names);
-        Set<String> databaseTableNames = new HashSet<>();
-        while (rs.next()) {
-            databaseTableNames.add(rs.getString("TABLE_NAME"));
-        }
+        Set<String> databaseTableNames = getMetadata(connection).getTableNames(connection);
 
         //.... Process each table into a separate workbook
         Map<String, Workbook> workbooks = new HashMap<>();
         for (String tableName : tableNames) {
             Workbook workbook = ExcelTools.getNewWorkbook(FileType.XLSX);
             if (databaseTableNames.contains(tableName)) {
-                addSheet(workbook, tableName, metadata, connection);
+                addSheet(new CellWriter(workbook), tableName, connection, 0);
                 workbooks.put(tableName, workbook);
             } else {
                 LOGGER.log(Level.SEVERE, "Database does not contain a table named {0}", tableName);
@@ -150,73 +204,433 @@ public class ExcelDatabaseHandler {
     }
 
     /**
-     * Read one table into a new sheet of the given workbook
+     * Export the tables into one workbook which is written directly to the
+     * stream. The workbook is an SXSSFWorkbook, i. e. only the last
+     * <code>rowWindow</code> rows of a sheet are held in memory, and the rows
+     * are fetched from the database in batches of <code>fetchSize</code>, such
+     * that memory use does not depend on the size of the tables.
+     *
+     * @param tableNames
+     * @param stream
+     * @param rowWindow
+     * @param fetchSize
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws SQLException
+     * @throws InstantiationException
+     * @throws IOException
+     */
+    public void exportExcelFromDatabase(Set<String> tableNames, OutputStream stream, int rowWindow, int fetchSize) throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException, IOException {
+        if (tableNames == null) {
+            throw new NullPointerException("tableNames may not be null");
+        }
+        if (stream == null) {
+            throw new NullPointerException("stream may not be null");
+        }
+        if (rowWindow <= 0) {
+            throw new IllegalArgumentException("rowWindow must be > 0");
+        }
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize must be >= 0");
+        }
+
+        Connection connection = ConnectionManager.getInstance().getConnection();
+        Set<String> databaseTableNames = getMetadata(connection).getTableNames(connection);
+
+        //.... Some drivers (e. g. PostgreSQL) only honour the fetch size outside of autocommit mode
+        boolean autoCommit = connection.getAutoCommit();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        CellWriter cellWriter = new CellWriter(workbook);
+        try {
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            for (String tableName : tableNames) {
+                if (databaseTableNames.contains(tableName)) {
+                    addSheet(cellWriter, tableName, connection, fetchSize);
+                } else {
+                    LOGGER.log(Level.SEVERE, "Database does not contain a table named {0}", tableName);
+                }
+            }
+            workbook.write(stream);
+            stream.flush();
+        } finally {
+            workbook.dispose();
+            workbook.close();
+            if (autoCommit) {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     *
+     * @param tableNames
+     * @param path
+     * @param rowWindow
+     * @param fetchSize
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws SQLException
+     * @throws InstantiationException
+     * @throws IOException
+     */
+    public void exportExcelFromDatabase(Set<String> tableNames, Path path, int rowWindow, int fetchSize) throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException, IOException {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        try (OutputStream stream = Files.newOutputStream(path)) {
+            exportExcelFromDatabase(tableNames, stream, rowWindow, fetchSize);
+        }
+    }
+
+    /**
+     * Uses the default row window and fetch size
+     *
+     * @param tableNames
+     * @param path
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws SQLException
+     * @throws InstantiationException
+     * @throws IOException
+     */
+    public void exportExcelFromDatabase(Set<String> tableNames, Path path) throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException, IOException {
+        exportExcelFromDatabase(tableNames, path, DEFAULT_ROW_WINDOW, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Parallel version of {@link #loadExcelsFromDatabase(Set)}: each table is
+     * read into its own workbook on its own connection, using at most
+     * <code>parallelism</code> threads and connections at the same time.
+     * This requires the handler to be created from {@link ConnectionData}
+     * such that additional connections can be opened.
+     *
+     * @param tableNames
+     * @param parallelism
+     * @return
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws SQLException
+     * @throws InstantiationException
+     */
+    public Map<String, Workbook> loadExcelsFromDatabase(Set<String> tableNames, int parallelism) throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException {
+        try {
+            return processTablesInParallel(tableNames, parallelism, (tableName, connection) -> {
+                Workbook workbook = ExcelTools.getNewWorkbook(FileType.XLSX);
+                addSheet(new CellWriter(workbook), tableName, connection, 0);
+                return workbook;
+            });
+        } catch (IOException ex) {
+            throw new SQLException(ex);
+        }
+    }
+
+    /**
+     * Export each table into its own XLSX file named after the table in the
+     * directory given. The tables are processed in parallel on separate
+     * connections as in {@link #loadExcelsFromDatabase(Set, int)}, and each
+     * file is written in streaming mode as in
+     * {@link #exportExcelFromDatabase(Set, OutputStream, int, int)}.
+     *
+     * @param tableNames
+     * @param directory
+     * @param parallelism
+     * @return the files written, keyed by table name
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws SQLException
+     * @throws InstantiationException
+     * @throws IOException
+     */
+    public Map<String, Path> exportExcelsFromDatabase(Set<String> tableNames, Path directory, int parallelism) throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException, IOException {
+        if (directory == null) {
+            throw new NullPointerException("directory may not be null");
+        }
+        Files.createDirectories(directory);
+        return processTablesInParallel(tableNames, parallelism, (tableName, connection) -> {
+            Path path = directory.resolve(tableName + FileType.XLSX.getExtension());
+            boolean autoCommit = connection.getAutoCommit();
+            SXSSFWorkbook workbook = new SXSSFWorkbook(DEFAULT_ROW_WINDOW);
+            try (OutputStream stream = Files.newOutputStream(path)) {
+                if (autoCommit) {
+                    connection.setAutoCommit(false);
+                }
+                addSheet(new CellWriter(workbook), tableName, connection, DEFAULT_FETCH_SIZE);
+                workbook.write(stream);
+            } finally {
+                workbook.dispose();
+                workbook.close();
+                if (autoCommit) {
+                    connection.commit();
+                    connection.setAutoCommit(true);
+                }
+            }
+            return path;
+        });
+    }
+
+    /**
+     * Export a table to a CSV file (see {@link CsvWriter}) with a header row
+     * containing the column names. The rows are streamed from the result set
+     * to the file, NULL values are written as empty fields.
+     *
+     * @param tableName
+     * @param csvFile
+     * @param fetchSize the JDBC fetch size hint, 0 for the driver default
+     * @return the number of rows written
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws SQLException
+     * @throws InstantiationException
+     * @throws IOException
+     */
+    public int exportCsvFromDatabase(String tableName, Path csvFile, int fetchSize) throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException, IOException {
+        if (tableName == null) {
+            throw new NullPointerException("tableName may not be null");
+        }
+        if (csvFile == null) {
+            throw new NullPointerException("csvFile may not be null");
+        }
+
+        Connection connection = ConnectionManager.getInstance().getConnection();
+        TableMetadata metadata = getMetadata(connection);
+        if (!metadata.getTableNames(connection).contains(tableName)) {
+            throw new IllegalArgumentException("Database does not contain a table named " + tableName);
+        }
+        List<String> columnNames = metadata.getColumnNames(connection, tableName);
+        int rowCount = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        try (CsvWriter writer = new CsvWriter(csvFile);
+                Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            if (autoCommit) {
+                connection.setAutoCommit(false);
+            }
+            writer.writeRow(columnNames);
+            statement.setFetchSize(fetchSize);
+            ResultSet rs = statement.executeQuery("SELECT * FROM " + tableName);
+            while (rs.next()) {
+                for (int c = 1; c <= columnNames.size(); c++) {
+                    writer.writeField(rs.getString(c));
+                }
+                writer.endRow();
+                rowCount++;
+            }
+        } finally {
+            if (autoCommit) {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+        }
+        return rowCount;
+    }
+
+    /**
+     * Uses the default fetch size
+     *
+     * @param tableName
+     * @param csvFile
+     * @return the number of rows written
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws SQLException
+     * @throws InstantiationException
+     * @throws IOException
+     */
+    public int exportCsvFromDatabase(String tableName, Path csvFile) throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException, IOException {
+        return exportCsvFromDatabase(tableName, csvFile, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Drop all cached table and column metadata, e. g. after tables have been
+     * changed by other means than this handler
+     */
+    public void clearMetadataCache() {
+        metadataCache.clear();
+    }
+
+    /**
+     *
+     * @param connection
+     * @return
+     */
+    private TableMetadata getMetadata(Connection connection) {
+        synchronized (metadataCache) {
+            TableMetadata metadata = metadataCache.get(connection);
+            if (metadata == null) {
+                metadata = new TableMetadata();
+                metadataCache.put(connection, metadata);
+            }
+            return metadata;
+        }
+    }
+
+    /**
+     * Run the task for each table on a bounded thread pool; each thread uses
+     * a connection of its own
+     *
+     * @param <R>
+     * @param tableNames
+     * @param parallelism
+     * @param task
+     * @return the results in the iteration order of the table names
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws SQLException
+     * @throws InstantiationException
+     * @throws IOException
+     */
+    private <R> Map<String, R> processTablesInParallel(Set<String> tableNames, int parallelism, TableTask<R> task) throws ClassNotFoundException, IllegalAccessException, SQLException, InstantiationException, IOException {
+        if (tableNames == null) {
+            throw new NullPointerException("tableNames may not be null");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be > 0");
+        }
+
+        Connection mainConnection = ConnectionManager.getInstance().getConnection();
+        Set<String> databaseTableNames = getMetadata(mainConnection).getTableNames(mainConnection);
+        List<String> existingTableNames = new ArrayList<>();
+        for (String tableName : tableNames) {
+            if (databaseTableNames.contains(tableName)) {
+                existingTableNames.add(tableName);
+            } else {
+                LOGGER.log(Level.SEVERE, "Database does not contain a table named {0}", tableName);
+            }
+        }
+
+        int threads = Math.min(parallelism, Math.max(1, existingTableNames.size()));
+        List<Connection> allConnections = new ArrayList<>(threads);
+        BlockingQueue<Connection> connections = new ArrayBlockingQueue<>(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                Connection connection = ConnectionManager.getInstance().createConnection();
+                allConnections.add(connection);
+                connections.add(connection);
+            }
+
+            Map<String, Future<R>> futures = new LinkedHashMap<>();
+            for (String tableName : existingTableNames) {
+                futures.put(tableName, executor.submit(() -> {
+                    Connection connection = connections.take();
+                    try {
+                        return task.process(tableName, connection);
+                    } finally {
+                        connections.put(connection);
+                    }
+                }));
+            }
+
+            Map<String, R> results = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<R>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+            return results;
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while processing tables", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException(cause);
+        } finally {
+
+            //.... Wait for running tasks such that no connection is still in use or put back after closing
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS)) {
+                    LOGGER.log(Level.WARNING, "Table tasks did not terminate within {0} seconds, closing their connections", SHUTDOWN_TIMEOUT);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            for (Connection connection : allConnections) {
+                try {
+                    metadataCache.remove(connection);
+                    connection.close();
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.WARNING, "Could not close connection", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read one table into a new sheet of the workbook of the cell writer
      *
-     * @param workbook
+     * @param cellWriter
      * @param tableName
-     * @param metadata
      * @param connection
+     * @param fetchSize the JDBC fetch size hint, 0 for the driver default
      * @throws SQLException
      */
-    private void addSheet(Workbook workbook, String tableName, DatabaseMetaData metadata, Connection connection) throws SQLException {
-        if (workbook == null) {
-            throw new NullPointerException("workbook may not be null");
+    private void addSheet(CellWriter cellWriter, String tableName, Connection connection, int fetchSize) throws SQLException {
+        if (cellWriter == null) {
+            throw new NullPointerException("cellWriter may not be null");
         }
         if (tableName == null) {
             throw new NullPointerException("tableName may not be null");
         }
-        if (metadata == null) {
-            throw new NullPointerException("metadata may not be null");
-        }
         if (connection == null) {
             throw new NullPointerException("connection may not be null");
         }
 
-        Sheet sheet = workbook.createSheet(tableName);
-        Map<String, CellType> columnTypes = new HashMap<>();
-        List<String> columnNames = new ArrayList<>();
+        Sheet sheet = cellWriter.getWorkbook().createSheet(tableName);
+        Map<String, CellType> columnTypes = getMetadata(connection).getColumns(connection, tableName);
+        List<String> columnNames = new ArrayList<>(columnTypes.keySet());
 
         //.... Header row
         int r = 0;
         int c = 0;
         Row row = sheet.createRow(r++);
-        ResultSet rs = metadata.getColumns(null, null, tableName, null);
-        while (rs.next()) {
-            String columnName = rs.getString("COLUMN_NAME");
-            columnNames.add(columnName);
-            Cell cell = row.createCell(c++);
-            cell.setCellValue(columnName);
-            switch (rs.getString("TYPE_NAME")) {
-                case "VARCHAR":
-                    columnTypes.put(columnName, STRING);
-                    break;
-                case "DOUBLE":
-                    columnTypes.put(columnName, CellType.NUMERIC);
-                    break;
-                default:
-                    columnTypes.put(columnName, CellType.STRING);
-            }
+        for (String columnName : columnNames) {
+            cellWriter.setCellValue(row.createCell(c++), columnName);
         }
 
         //.... Data rows
-        rs = connection.createStatement().executeQuery("SELECT * FROM " + tableName);
-        while (rs.next()) {
-            row = sheet.createRow(r++);
-            c = 0;
-            for (String columnName : columnNames) {
-                Cell cell = row.createCell(c++);
-                switch (columnTypes.get(columnName)) {
-                    case NUMERIC:
-                        cell.setCellValue(rs.getDouble(columnName));
-                        break;
-                    case STRING:
-                        cell.setCellValue(rs.getString(columnName));
-                        break;
-                    default:
-                        cell.setCellValue(rs.getString(columnName));
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(fetchSize);
+            ResultSet rs = statement.executeQuery("SELECT * FROM " + tableName);
+            while (rs.next()) {
+                row = sheet.createRow(r++);
+                c = 0;
+                for (String columnName : columnNames) {
+                    Cell cell = row.createCell(c++);
+                    switch (columnTypes.get(columnName)) {
+                        case NUMERIC:
+                            double number = rs.getDouble(columnName);
+                            if (!rs.wasNull()) {
+                                cell.setCellValue(number);
+                            }
+                            break;
+                        case BOOLEAN:
+                            boolean flag = rs.getBoolean(columnName);
+                            if (!rs.wasNull()) {
+                                cell.setCellValue(flag);
+                            }
+                            break;
+                        case STRING:
+                            cellWriter.setCellValue(cell, rs.getString(columnName));
+                            break;
+                        default:
+                            cellWriter.setCellValue(cell, rs.getString(columnName));
+                    }
                 }
             }
         }
+        LOGGER.log(Level.FINE, "Added sheet {0}: {1} strings written, {2} by shared strings reference, {3} shared strings, {4} cell styles",
+                new Object[]{tableName, cellWriter.getStringCount(), cellWriter.getStringHits(), cellWriter.getSharedStringCount(), cellWriter.getCellStyleCount()});
     }
 
     /**
@@ -226,24 +640,44 @@ public class ExcelDatabaseHandler {
      * rows. There are no merged cells or other data outside the rectangular
      * shape.
      *
-     * It tries to determine the DB types It does not support Apache POI
-     * CellType yet ... one could derive information from a first data row and
-     * then go for e. g. VARCHAR or INTEGER column types in the table, but this
-     * makes some additional assumptions (which data row to look at etc.) such
-     * that for simplicity, right now all cells are interpreted as strings.
+     * The column types are determined from all data rows of the sheet: the
+     * narrowest of INTEGER, BIGINT, DOUBLE, BOOLEAN and DATE holding all
+     * non-blank cells of a column is used, otherwise VARCHAR with the maximum
+     * length found in the column. Columns without any data are created as
+     * VARCHAR of <code>varcharLength</code>. Blank cells are stored as NULL
+     * (or an empty string for VARCHAR columns).
      *
      * Note that the table specified is reserved exclusively for this method's
      * use, i. e. if it exists, it is first deleted and then recreated!
      *
+     * The rows are inserted in JDBC batches of <code>batchSize</code> rows
+     * within a transaction which is committed every
+     * <code>commitInterval</code> rows. If an insert fails, the uncommitted
+     * rows are rolled back.
+     *
+     * If a <code>checkpointId</code> is given, the index of the last committed
+     * sheet row is stored with each commit in the table
+     * {@link #CHECKPOINT_TABLE}, in the same transaction as the rows. If the
+     * import fails, a later call with the same table name and checkpoint id
+     * keeps the table and resumes after the last committed row. The
+     * checkpoint id identifies the source, e. g. file name, size and
+     * modification time, such that a changed source is imported from scratch.
+     * The checkpoint is removed when the import is complete and whenever the
+     * table is recreated, also by imports without a checkpoint id.
+     *
      * @param sheet
      * @param tableName
      * @param varcharLength
+     * @param batchSize
+     * @param commitInterval
+     * @param checkpointId the source identification for resumable imports or
+     * null
      * @throws java.sql.SQLException
      * @throws java.lang.ClassNotFoundException
      * @throws java.lang.IllegalAccessException
      * @throws java.lang.InstantiationException
      */
-    public void saveExcelSheetToDatabase(Sheet sheet, String tableName, int varcharLength) throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+    public void saveExcelSheetToDatabase(Sheet sheet, String tableName, int varcharLength, int batchSize, int commitInterval, String checkpointId) throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException {
         if (sheet == null) {
             throw new NullPointerException("sheet may not be null");
         }
@@ -253,146 +687,1068 @@ public class ExcelDatabaseHandler {
         if (varcharLength <= 0) {
             throw new IllegalArgumentException("varcharLength must be > 0");
         }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be > 0");
+        }
+        if (commitInterval <= 0) {
+            throw new IllegalArgumentException("commitInterval must be > 0");
+        }
         if (sheet.getRow(sheet.getFirstRowNum()) == null) {
             throw new UnsupportedOperationException("Sheet does not contain any data, not even a header row");
         }
 
         Connection connection = ConnectionManager.getInstance().getConnection();
+        SheetTable table = analyzeSheet(sheet, tableName);
 
-        //.... Find all tables that exist and delete the one named 'tableName' if it exists
-        DatabaseMetaData metadata = connection.getMetaData();
-        String[] names = {"TABLE"};
-        ResultSet rs = metadata.getTables(null, null, null, names);
-        while (rs.next()) {
-            if (rs.getString("TABLE_NAME").equals(tableName)) {
-                LOGGER.log(Level.INFO, "Dropping table {0}", tableName);
-                connection.createStatement().executeUpdate("DROP TABLE " + tableName);
-                break;
-            }
-        }
-
-        //.... Collect the column names
-        Row row = sheet.getRow(sheet.getFirstRowNum());
-        int startCol = row.getFirstCellNum();
-        int endCol = row.getLastCellNum();
-        String[] columnNames = new String[endCol - startCol];
-
-        int i = 0;
-        for (int c = startCol; c < endCol; c++) {
-            String columnName = row.getCell(c).getStringCellValue().trim().replaceAll("\\s+", "_").replaceAll("[-\\)\\(/#.]", "_");
-            columnNames[i++] = columnName.toUpperCase();
-        }
-
-        //.... Check if the sheet contains at least one data row - we can use that to determine column types
-        row = sheet.getRow(sheet.getFirstRowNum() + 1);
-        CellType[] cellTypes = new CellType[endCol - startCol];
-        i = 0;
-        boolean hasData = false;
-        if (row != null) {
-            hasData = true;
-            for (int c = startCol; c < endCol; c++) {
-                if (row.getCell(c) != null) {
-                    cellTypes[i++] = row.getCell(c).getCellType();
-                } else {
-                    cellTypes[i++] = CellType.STRING;
-                }
-            }
-        } else {
-            for (int c = startCol; c < endCol; c++) {
-                cellTypes[i++] = CellType.STRING;
-            }
-        }
-
-        //.... Create the table
-        StringBuilder sb = new StringBuilder(500);
-        sb.append("CREATE TABLE ");
-        sb.append(tableName);
-        sb.append(" (");
-        for (int k = 0; k < columnNames.length; k++) {
-            //         sb.append("'");
-            sb.append(columnNames[k]);
-            //       sb.append("'");
-            switch (cellTypes[k]) {
-                case STRING:
-                    sb.append(" VARCHAR(");
-                    sb.append(varcharLength);
-                    sb.append("),");
-                    break;
-                case NUMERIC:
-                    sb.append(" DOUBLE,");
-                    break;
-                default:
-                    sb.append(" VARCHAR(");
-                    sb.append(varcharLength);
-                    sb.append("),");
+        //.... Resume from a checkpoint of an earlier import of the same source, if there is one
+        int firstRow = sheet.getFirstRowNum() + 1;
+        if (checkpointId != null) {
+            Integer lastRow = getCheckpoint(connection, tableName, checkpointId);
+            if (lastRow != null && getMetadata(connection).getTableNames(connection).contains(tableName)) {
+                LOGGER.log(Level.INFO, "Resuming import into table {0} after row {1}", new Object[]{tableName, lastRow});
+                insertRows(sheet, table, connection, batchSize, commitInterval, lastRow + 1, checkpointId);
+                return;
             }
         }
-        sb.setLength(sb.length() - 1);
-        sb.append(")");
-        LOGGER.log(Level.INFO, "Creating table {0}", tableName);
-        System.out.println(sb.toString());
-        connection.createStatement().executeUpdate(sb.toString());
-
-        //.... Now store the table data
-        sb = new StringBuilder(500);
-        sb.append("INSERT INTO ");
-        sb.append(tableName);
-        sb.append(" (");
-        for (String columnName : columnNames) {
-            sb.append(columnName);
-            sb.append(",");
-        }
-        sb.setLength(sb.length() - 1);
-        sb.append(") VALUES (");
-        for (int k = 0; k < columnNames.length; k++) {
-            sb.append("?,");
-        }
-        sb.setLength(sb.length() - 1);
-        sb.append(")");
-
-        PreparedStatement insertStatement = ConnectionManager.getInstance().getStatement(sb.toString());
-
-        for (int r = sheet.getFirstRowNum() + 1; r <= sheet.getLastRowNum(); r++) {
-            i = 1;
-            int k = 0;
-            row = sheet.getRow(r);
-            for (int c = startCol; c < endCol; c++) {
-                if (row.getCell(c) != null) {
-                    System.out.println("xx " + row.getCell(c));
-                    switch (cellTypes[k++]) {
-                        case FORMULA:
-                            insertStatement.setDouble(i++, row.getCell(c).getNumericCellValue());
-                            break;
-                        case NUMERIC:
-                            insertStatement.setDouble(i++, row.getCell(c).getNumericCellValue());
-                            break;
-                        case STRING:
-                            insertStatement.setString(i++, row.getCell(c).getStringCellValue());
-                            break;
-                        default:
-                            insertStatement.setString(i++, row.getCell(c).getStringCellValue());
 
-                    }
-                } else {
-                    insertStatement.setString(i++, "");
-                }
-            }
-            insertStatement.executeUpdate();
+        createTable(table, varcharLength, false, connection);
+        if (checkpointId != null) {
+            setCheckpoint(connection, tableName, checkpointId, firstRow - 1);
         }
+        insertRows(sheet, table, connection, batchSize, commitInterval, firstRow, checkpointId);
     }
 
     /**
-     * Uses a default VARCHAR length setting of 200
+     * Same as
+     * {@link #saveExcelSheetToDatabase(Sheet, String, int, int, int, String)}
+     * without checkpoints
      *
      * @param sheet
      * @param tableName
-     * @throws SQLException
-     * @throws ClassNotFoundException
-     * @throws IllegalAccessException
-     * @throws InstantiationException
+     * @param varcharLength
+     * @param batchSize
+     * @param commitInterval
+     * @throws java.sql.SQLException
+     * @throws java.lang.ClassNotFoundException
+     * @throws java.lang.IllegalAccessException
+     * @throws java.lang.InstantiationException
      */
-    public void saveExcelSheetToDatabase(Sheet sheet, String tableName) throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException {
-        saveExcelSheetToDatabase(sheet, tableName, 200);
+    public void saveExcelSheetToDatabase(Sheet sheet, String tableName, int varcharLength, int batchSize, int commitInterval) throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        saveExcelSheetToDatabase(sheet, tableName, varcharLength, batchSize, commitInterval, null);
+    }
+
+    /**
+     * Same as
+     * {@link #saveExcelSheetToDatabase(Sheet, String, int, int, int)}, but the
+     * sheet is first written to a temporary CSV file which is then handed to
+     * the bulk loader of the database. This is much faster than row inserts
+     * for large sheets. If the bulk loader does not support the database or
+     * the bulk load fails, the rows are inserted in batches instead.
+     *
+     * @param sheet
+     * @param tableName
+     * @param varcharLength
+     * @param bulkLoader
+     * @throws java.sql.SQLException
+     * @throws java.io.IOException
+     * @throws java.lang.ClassNotFoundException
+     * @throws java.lang.IllegalAccessException
+     * @throws java.lang.InstantiationException
+     */
+    public void bulkLoadExcelSheetToDatabase(Sheet sheet, String tableName, int varcharLength, BulkLoader bulkLoader) throws SQLException, IOException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        if (sheet == null) {
+            throw new NullPointerException("sheet may not be null");
+        }
+        if (tableName == null) {
+            throw new NullPointerException("tableName may not be null");
+        }
+        if (bulkLoader == null) {
+            throw new NullPointerException("bulkLoader may not be null");
+        }
+        if (varcharLength <= 0) {
+            throw new IllegalArgumentException("varcharLength must be > 0");
+        }
+        if (sheet.getRow(sheet.getFirstRowNum()) == null) {
+            throw new UnsupportedOperationException("Sheet does not contain any data, not even a header row");
+        }
+
+        Connection connection = ConnectionManager.getInstance().getConnection();
+        SheetTable table = analyzeSheet(sheet, tableName);
+        createTable(table, varcharLength, false, connection);
+
+        if (!bulkLoader.isSupported(connection)) {
+            LOGGER.log(Level.WARNING, "Bulk loader {0} does not support this database, using batched inserts for table {1}",
+                    new Object[]{bulkLoader.getClass().getSimpleName(), tableName});
+            insertRows(sheet, table, connection, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL, sheet.getFirstRowNum() + 1, null);
+            return;
+        }
+
+        Path csvFile = Files.createTempFile(tableName, ".csv");
+        try {
+            long startTime = System.currentTimeMillis();
+            int rowCount = writeCsv(sheet, table, csvFile);
+
+            boolean autoCommit = connection.getAutoCommit();
+            boolean loaded = false;
+            try {
+                connection.setAutoCommit(false);
+                bulkLoader.load(connection, tableName, List.of(table.columnNames), csvFile);
+                connection.commit();
+                loaded = true;
+            } catch (SQLException ex) {
+                connection.rollback();
+                LOGGER.log(Level.WARNING, "Bulk load into table {0} failed, using batched inserts: {1}", new Object[]{tableName, ex.getMessage()});
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+
+            if (loaded) {
+                long duration = Math.max(1L, System.currentTimeMillis() - startTime);
+                LOGGER.log(Level.INFO, "Bulk loaded {0} rows into table {1} in {2} ms ({3} rows/sec)",
+                        new Object[]{rowCount, tableName, duration, rowCount * 1000L / duration});
+            } else {
+                insertRows(sheet, table, connection, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL, sheet.getFirstRowNum() + 1, null);
+            }
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    /**
+     * Bulk load a sheet with the H2 <code>CSVREAD</code> function
+     *
+     * @param sheet
+     * @param tableName
+     * @throws java.sql.SQLException
+     * @throws java.io.IOException
+     * @throws java.lang.ClassNotFoundException
+     * @throws java.lang.IllegalAccessException
+     * @throws java.lang.InstantiationException
+     */
+    public void bulkLoadExcelSheetToDatabase(Sheet sheet, String tableName) throws SQLException, IOException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        bulkLoadExcelSheetToDatabase(sheet, tableName, DEFAULT_VARCHAR_LENGTH, new H2BulkLoader());
+    }
+
+    /**
+     * Load a sheet of an XLSX file without loading the workbook into memory:
+     * a first streaming pass reads the header row and determines the column
+     * types, then the rows are read, converted and inserted in a pipeline of
+     * overlapping stages (see {@link SheetLoadPipeline}) with
+     * <code>workers</code> conversion threads. As the streaming reader only
+     * provides the parsed strings, dates end up as numbers. CSV files are
+     * loaded the same way without POI, see {@link CsvReader} for the format.
+     * The table is (re)created as in
+     * {@link #saveExcelSheetToDatabase(Sheet, String, int, int, int)}.
+     *
+     * @param excelFile an XLSX or CSV file
+     * @param sheetName the name of the sheet or null for the first sheet;
+     * ignored for CSV files
+     * @param tableName
+     * @param varcharLength
+     * @param workers
+     * @param batchSize
+     * @param commitInterval
+     * @throws java.sql.SQLException
+     * @throws java.io.IOException
+     * @throws java.lang.ClassNotFoundException
+     * @throws java.lang.IllegalAccessException
+     * @throws java.lang.InstantiationException
+     */
+    public void pipelineExcelSheetToDatabase(Path excelFile, String sheetName, String tableName, int varcharLength, int workers, int batchSize, int commitInterval) throws SQLException, IOException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        if (excelFile == null) {
+            throw new NullPointerException("excelFile may not be null");
+        }
+        if (tableName == null) {
+            throw new NullPointerException("tableName may not be null");
+        }
+        if (varcharLength <= 0) {
+            throw new IllegalArgumentException("varcharLength must be > 0");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be > 0");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be > 0");
+        }
+        if (commitInterval <= 0) {
+            throw new IllegalArgumentException("commitInterval must be > 0");
+        }
+
+        //.... First pass: column names and types
+        long startTime = System.currentTimeMillis();
+        String[] columnNames;
+        ColumnTypeInference inference;
+        try (Stream<List<String>> rows = ExcelTools.streamSheet(excelFile, sheetName)) {
+            Iterator<List<String>> iterator = rows.iterator();
+            if (!iterator.hasNext()) {
+                throw new UnsupportedOperationException("Sheet does not contain any data, not even a header row");
+            }
+            List<String> header = iterator.next();
+            columnNames = new String[header.size()];
+            for (int c = 0; c < columnNames.length; c++) {
+                columnNames[c] = toColumnName(header.get(c));
+                if (columnNames[c].isEmpty()) {
+                    throw new IllegalArgumentException("Header row contains an empty column name in column " + c);
+                }
+            }
+            inference = new ColumnTypeInference(columnNames.length);
+            while (iterator.hasNext()) {
+                List<String> rowData = iterator.next();
+                for (int c = 0; c < Math.min(columnNames.length, rowData.size()); c++) {
+                    inference.accept(c, rowData.get(c));
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        LOGGER.log(Level.INFO, "Analyzed sheet in {0} ms", System.currentTimeMillis() - startTime);
+
+        Connection connection = ConnectionManager.getInstance().getConnection();
+        SheetTable table = new SheetTable(tableName, columnNames, 0, columnNames.length, inference);
+        createTable(table, varcharLength, false, connection);
+
+        //.... Second pass: the pipeline
+        SheetLoadPipeline pipeline = new SheetLoadPipeline(excelFile, sheetName, inference, columnNames.length, workers);
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            connection.setAutoCommit(false);
+            pipeline.run(connection, getInsertSql(tableName, columnNames), batchSize, commitInterval);
+            connection.commit();
+        } catch (SQLException | IOException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        } catch (Exception ex) {
+            connection.rollback();
+            throw new SQLException("Could not load table " + tableName, ex);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Uses the default varchar length, batch size and commit interval
+     *
+     * @param excelFile
+     * @param sheetName the name of the sheet or null for the first sheet
+     * @param tableName
+     * @param workers
+     * @throws java.sql.SQLException
+     * @throws java.io.IOException
+     * @throws java.lang.ClassNotFoundException
+     * @throws java.lang.IllegalAccessException
+     * @throws java.lang.InstantiationException
+     */
+    public void pipelineExcelSheetToDatabase(Path excelFile, String sheetName, String tableName, int workers) throws SQLException, IOException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        pipelineExcelSheetToDatabase(excelFile, sheetName, tableName, DEFAULT_VARCHAR_LENGTH, workers, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL);
+    }
+
+    /**
+     * Determine the column names from the header row and the column types
+     * from the data rows of a sheet
+     *
+     * @param sheet
+     * @param tableName
+     * @return
+     */
+    private SheetTable analyzeSheet(Sheet sheet, String tableName) {
+
+        //.... Collect the column names
+        Row row = sheet.getRow(sheet.getFirstRowNum());
+        int startCol = row.getFirstCellNum();
+        int endCol = row.getLastCellNum();
+        String[] columnNames = new String[endCol - startCol];
+
+        int i = 0;
+        for (int c = startCol; c < endCol; c++) {
+            columnNames[i++] = toColumnName(row.getCell(c).getStringCellValue());
+        }
+
+        //.... Scan all data rows to determine the narrowest column types holding all cells
+        ColumnTypeInference inference = new ColumnTypeInference(endCol - startCol);
+        for (int r = sheet.getFirstRowNum() + 1; r <= sheet.getLastRowNum(); r++) {
+            row = sheet.getRow(r);
+            if (row != null) {
+                for (int c = startCol; c < endCol; c++) {
+                    inference.accept(c - startCol, row.getCell(c));
+                }
+            }
+        }
+
+        return new SheetTable(tableName, columnNames, startCol, endCol, inference);
+    }
+
+    /**
+     * (Re)create the table for a sheet
+     *
+     * @param table
+     * @param varcharLength
+     * @param reserveVarchar if true, VARCHAR columns are at least
+     * <code>varcharLength</code> long such that later updates can store longer
+     * values, otherwise they are as long as the longest value
+     * @param connection
+     * @throws SQLException
+     */
+    private void createTable(SheetTable table, int varcharLength, boolean reserveVarchar, Connection connection) throws SQLException {
+        String tableName = table.tableName;
+        String[] columnNames = table.columnNames;
+        ColumnTypeInference inference = table.inference;
+
+        //.... Delete the table named 'tableName' if it exists; the cached metadata is outdated by this anyway
+        metadataCache.clear();
+        if (getMetadata(connection).getTableNames(connection).contains(tableName)) {
+            LOGGER.log(Level.INFO, "Dropping table {0}", tableName);
+            connection.createStatement().executeUpdate("DROP TABLE " + tableName);
+        }
+
+        //.... A checkpoint of an earlier import belongs to the old table, resuming from it would duplicate rows
+        if (getMetadata(connection).getTableNames(connection).contains(CHECKPOINT_TABLE)) {
+            clearCheckpoint(connection, tableName);
+        }
+
+        //.... Create the table
+        StringBuilder sb = new StringBuilder(500);
+        sb.append("CREATE TABLE ");
+        sb.append(tableName);
+        sb.append(" (");
+        for (int k = 0; k < columnNames.length; k++) {
+            sb.append(columnNames[k]);
+            sb.append(" ");
+            sb.append(inference.getColumnDefinition(k, varcharLength, reserveVarchar ? varcharLength : 1));
+            sb.append(",");
+        }
+        sb.setLength(sb.length() - 1);
+        sb.append(")");
+        LOGGER.log(Level.INFO, "Creating table {0}: {1}", new Object[]{tableName, sb.toString()});
+        connection.createStatement().executeUpdate(sb.toString());
+        metadataCache.clear();
+    }
+
+    /**
+     * @param connection
+     * @param tableName
+     * @param checkpointId
+     * @return the last committed row of the import of the source into the
+     * table or null if there is no checkpoint for this source
+     * @throws SQLException
+     */
+    private Integer getCheckpoint(Connection connection, String tableName, String checkpointId) throws SQLException {
+        createCheckpointTable(connection);
+        try (PreparedStatement statement = connection.prepareStatement("SELECT CHECKPOINT_ID, LAST_ROW FROM " + CHECKPOINT_TABLE + " WHERE TABLE_NAME=?")) {
+            statement.setString(1, tableName);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    if (checkpointId.equals(rs.getString(1))) {
+                        return rs.getInt(2);
+                    }
+                    LOGGER.log(Level.INFO, "Ignoring checkpoint of table {0} for a different source {1}", new Object[]{tableName, rs.getString(1)});
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Store the checkpoint; this is committed together with the rows
+     *
+     * @param connection
+     * @param tableName
+     * @param checkpointId
+     * @param lastRow
+     * @throws SQLException
+     */
+    private void setCheckpoint(Connection connection, String tableName, String checkpointId, int lastRow) throws SQLException {
+        clearCheckpoint(connection, tableName);
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + CHECKPOINT_TABLE + " (TABLE_NAME, CHECKPOINT_ID, LAST_ROW) VALUES (?,?,?)")) {
+            statement.setString(1, tableName);
+            statement.setString(2, checkpointId);
+            statement.setInt(3, lastRow);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * @param connection
+     * @param tableName
+     * @throws SQLException
+     */
+    private void clearCheckpoint(Connection connection, String tableName) throws SQLException {
+        createCheckpointTable(connection);
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + CHECKPOINT_TABLE + " WHERE TABLE_NAME=?")) {
+            statement.setString(1, tableName);
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * @param connection
+     * @throws SQLException
+     */
+    private void createCheckpointTable(Connection connection) throws SQLException {
+        if (!getMetadata(connection).getTableNames(connection).contains(CHECKPOINT_TABLE)) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE " + CHECKPOINT_TABLE + " (TABLE_NAME VARCHAR(128) PRIMARY KEY, CHECKPOINT_ID VARCHAR(1000), LAST_ROW INTEGER)");
+            }
+            metadataCache.clear();
+        }
+    }
+
+    /**
+     * @param header
+     * @return the header text turned into a column name
+     */
+    private static String toColumnName(String header) {
+        return header.trim().replaceAll("\\s+", "_").replaceAll("[-\\)\\(/#.]", "_").toUpperCase();
+    }
+
+    /**
+     * @param tableName
+     * @param columnNames
+     * @return the insert statement with one parameter per column
+     */
+    private static String getInsertSql(String tableName, String[] columnNames) {
+        StringBuilder sb = new StringBuilder(500);
+        sb.append("INSERT INTO ");
+        sb.append(tableName);
+        sb.append(" (");
+        for (String columnName : columnNames) {
+            sb.append(columnName);
+            sb.append(",");
+        }
+        sb.setLength(sb.length() - 1);
+        sb.append(") VALUES (");
+        for (int k = 0; k < columnNames.length; k++) {
+            sb.append("?,");
+        }
+        sb.setLength(sb.length() - 1);
+        sb.append(")");
+        return sb.toString();
+    }
+
+    /**
+     * Insert the data rows of a sheet with JDBC batches
+     *
+     * @param sheet
+     * @param table
+     * @param connection
+     * @param batchSize
+     * @param commitInterval
+     * @param firstRow the index of the first sheet row to insert
+     * @param checkpointId if not null, the checkpoint is updated with each
+     * commit and removed at the end
+     * @throws SQLException
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws InstantiationException
+     */
+    private void insertRows(Sheet sheet, SheetTable table, Connection connection, int batchSize, int commitInterval, int firstRow, String checkpointId) throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        String tableName = table.tableName;
+        String[] columnNames = table.columnNames;
+        int startCol = table.startCol;
+        int endCol = table.endCol;
+        ColumnTypeInference inference = table.inference;
+        Row row;
+        int i;
+
+        //.... Now store the table data
+        PreparedStatement insertStatement = ConnectionManager.getInstance().getStatement(getInsertSql(tableName, columnNames));
+
+        boolean autoCommit = connection.getAutoCommit();
+        long startTime = System.currentTimeMillis();
+        int rowCount = 0;
+        try {
+            connection.setAutoCommit(false);
+            int batchCount = 0;
+            int uncommittedCount = 0;
+
+            for (int r = firstRow; r <= sheet.getLastRowNum(); r++) {
+                i = 1;
+                int k = 0;
+                row = sheet.getRow(r);
+                if (row == null) {
+                    continue;
+                }
+                for (int c = startCol; c < endCol; c++) {
+                    setParameter(insertStatement, i++, row.getCell(c), inference.getType(k), inference.getSqlType(k));
+                    k++;
+                }
+                insertStatement.addBatch();
+                rowCount++;
+                batchCount++;
+                uncommittedCount++;
+
+                if (batchCount == batchSize) {
+                    insertStatement.executeBatch();
+                    batchCount = 0;
+                }
+                if (uncommittedCount >= commitInterval) {
+                    if (batchCount > 0) {
+                        insertStatement.executeBatch();
+                        batchCount = 0;
+                    }
+                    if (checkpointId != null) {
+                        setCheckpoint(connection, tableName, checkpointId, r);
+                    }
+                    connection.commit();
+                    uncommittedCount = 0;
+                }
+            }
+
+            if (batchCount > 0) {
+                insertStatement.executeBatch();
+            }
+            if (checkpointId != null) {
+                clearCheckpoint(connection, tableName);
+            }
+            connection.commit();
+
+        } catch (SQLException | RuntimeException ex) {
+            insertStatement.clearBatch();
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        long duration = Math.max(1L, System.currentTimeMillis() - startTime);
+        LOGGER.log(Level.INFO, "Inserted {0} rows into table {1} in {2} ms ({3} rows/sec)",
+                new Object[]{rowCount, tableName, duration, rowCount * 1000L / duration});
+    }
+
+    /**
+     * Write the data rows of a sheet to a CSV file in the format described
+     * in {@link BulkLoader}
+     *
+     * @param sheet
+     * @param table
+     * @param csvFile
+     * @return the number of rows written
+     * @throws IOException
+     */
+    private int writeCsv(Sheet sheet, SheetTable table, Path csvFile) throws IOException {
+        int rowCount = 0;
+        try (CsvWriter writer = new CsvWriter(Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8), BulkLoader.SEPARATOR)) {
+            for (String columnName : table.columnNames) {
+                writer.writeField(columnName);
+            }
+            writer.endRow();
+
+            for (int r = sheet.getFirstRowNum() + 1; r <= sheet.getLastRowNum(); r++) {
+                Row row = sheet.getRow(r);
+                if (row == null) {
+                    continue;
+                }
+                for (int c = table.startCol; c < table.endCol; c++) {
+                    int k = c - table.startCol;
+                    Object value = getCellValue(row.getCell(c), table.inference.getType(k), table.inference.getSqlType(k));
+                    if (value == null) {
+                        writer.writeField(null);
+                    } else if (value instanceof String) {
+                        writer.writeQuotedField((String) value);
+                    } else if (value instanceof Boolean) {
+                        writer.writeField((Boolean) value ? "TRUE" : "FALSE");
+                    } else if (value instanceof LocalDateTime) {
+                        writer.writeField(Timestamp.valueOf((LocalDateTime) value).toString());
+                    } else {
+                        writer.writeField(value.toString());
+                    }
+                }
+                writer.endRow();
+                rowCount++;
+            }
+        }
+        return rowCount;
+    }
+
+    /**
+     * Bind a cell value to a statement parameter according to the inferred
+     * column type. Blank cells are bound as NULL except for VARCHAR columns
+     * where an empty string is used.
+     *
+     * @param statement
+     * @param index
+     * @param cell
+     * @param dataType
+     * @param sqlType
+     * @throws SQLException
+     */
+    private void setParameter(PreparedStatement statement, int index, Cell cell, DataType dataType, int sqlType) throws SQLException {
+        setValue(statement, index, getCellValue(cell, dataType, sqlType), sqlType);
+    }
+
+    /**
+     * Uses the default batch size and commit interval
+     *
+     * @param sheet
+     * @param tableName
+     * @param varcharLength
+     * @throws SQLException
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws InstantiationException
+     */
+    public void saveExcelSheetToDatabase(Sheet sheet, String tableName, int varcharLength) throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        saveExcelSheetToDatabase(sheet, tableName, varcharLength, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL);
+    }
+
+    /**
+     * Uses the default VARCHAR length setting of 200
+     *
+     * @param sheet
+     * @param tableName
+     * @throws SQLException
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws InstantiationException
+     */
+    public void saveExcelSheetToDatabase(Sheet sheet, String tableName) throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        saveExcelSheetToDatabase(sheet, tableName, DEFAULT_VARCHAR_LENGTH);
+    }
+
+    /**
+     * Incremental alternative to
+     * {@link #saveExcelSheetToDatabase(Sheet, String, int, int, int)}: instead
+     * of dropping and recreating the table, only the rows which changed in the
+     * sheet are written. Rows are identified by the values of the key columns
+     * given. For each row, a hash of all values is stored in the additional
+     * column {@link #ROW_HASH_COLUMN}; comparing it with the hash of the sheet
+     * row tells which rows need to be updated. Rows which are no longer in the
+     * sheet are deleted. An index on the key columns is created if needed.
+     * <p>
+     * If the table does not exist yet, it is created like in
+     * {@link #saveExcelSheetToDatabase(Sheet, String, int, int, int)}. Changes
+     * of the column structure of the sheet are not supported, the table needs
+     * to be recreated in that case. The values are converted to the column
+     * types of the existing table; if the sheet data no longer fits these
+     * types or is longer than a character column, an IllegalArgumentException
+     * is thrown before anything is written. All changes are done in one
+     * transaction.
+     *
+     * @param sheet
+     * @param tableName
+     * @param keyColumns the names of the key columns as in the header row
+     * @param varcharLength
+     * @param batchSize
+     * @throws java.sql.SQLException
+     * @throws java.lang.ClassNotFoundException
+     * @throws java.lang.IllegalAccessException
+     * @throws java.lang.InstantiationException
+     */
+    public void syncExcelSheetToDatabase(Sheet sheet, String tableName, List<String> keyColumns, int varcharLength, int batchSize) throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        if (sheet == null) {
+            throw new NullPointerException("sheet may not be null");
+        }
+        if (tableName == null) {
+            throw new NullPointerException("tableName may not be null");
+        }
+        if (keyColumns == null) {
+            throw new NullPointerException("keyColumns may not be null");
+        }
+        if (keyColumns.isEmpty()) {
+            throw new IllegalArgumentException("keyColumns may not be empty");
+        }
+        if (varcharLength <= 0) {
+            throw new IllegalArgumentException("varcharLength must be > 0");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be > 0");
+        }
+        if (sheet.getRow(sheet.getFirstRowNum()) == null) {
+            throw new UnsupportedOperationException("Sheet does not contain any data, not even a header row");
+        }
+
+        Connection connection = ConnectionManager.getInstance().getConnection();
+        SheetTable table = analyzeSheet(sheet, tableName);
+        String[] columnNames = table.columnNames;
+
+        //.... Positions of the key columns
+        List<String> columnList = List.of(columnNames);
+        int[] keyIndices = new int[keyColumns.size()];
+        for (int k = 0; k < keyIndices.length; k++) {
+            keyIndices[k] = columnList.indexOf(keyColumns.get(k).trim().toUpperCase());
+            if (keyIndices[k] < 0) {
+                throw new IllegalArgumentException("Sheet does not contain a key column " + keyColumns.get(k));
+            }
+        }
+
+        //.... Create the table if needed and make sure it has the hash column
+        metadataCache.clear();
+        if (!getMetadata(connection).getTableNames(connection).contains(tableName)) {
+            createTable(table, varcharLength, true, connection);
+        }
+        if (!getMetadata(connection).getColumns(connection, tableName).containsKey(ROW_HASH_COLUMN)) {
+            LOGGER.log(Level.INFO, "Adding column {0} to table {1}", new Object[]{ROW_HASH_COLUMN, tableName});
+            connection.createStatement().executeUpdate("ALTER TABLE " + tableName + " ADD COLUMN " + ROW_HASH_COLUMN + " BIGINT");
+            metadataCache.clear();
+        }
+        String indexName = tableName + "_SYNC_KEY";
+        boolean hasIndex = false;
+        try (ResultSet rs = connection.getMetaData().getIndexInfo(null, null, tableName, false, true)) {
+            while (rs.next()) {
+                hasIndex |= indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"));
+            }
+        }
+        if (!hasIndex) {
+            StringBuilder sb = new StringBuilder(100);
+            for (int keyIndex : keyIndices) {
+                sb.append(columnNames[keyIndex]);
+                sb.append(",");
+            }
+            sb.setLength(sb.length() - 1);
+            LOGGER.log(Level.INFO, "Creating index {0} on table {1} ({2})", new Object[]{indexName, tableName, sb});
+            connection.createStatement().executeUpdate("CREATE INDEX " + indexName + " ON " + tableName + " (" + sb + ")");
+        }
+
+        //.... The values are built with the column types of the table, not the types inferred in this run, such that keys and
+        //.... hashes compare across runs
+        Map<String, Integer> tableTypes = getMetadata(connection).getSqlTypes(connection, tableName);
+        Map<String, Integer> tableSizes = getMetadata(connection).getColumnSizes(connection, tableName);
+        int[] sqlTypes = new int[columnNames.length];
+        DataType[] dataTypes = new DataType[columnNames.length];
+        for (int k = 0; k < columnNames.length; k++) {
+            Integer sqlType = tableTypes.get(columnNames[k]);
+            if (sqlType == null) {
+                throw new IllegalArgumentException("Table " + tableName + " does not contain a column " + columnNames[k] + ", it needs to be recreated");
+            }
+            if (table.inference.hasData(k) && !isCompatible(table.inference.getType(k), sqlType)) {
+                throw new IllegalArgumentException("Column " + columnNames[k] + " of the sheet has type " + table.inference.getType(k)
+                        + " which does not fit the column type " + sqlType + " of table " + tableName + ", it needs to be recreated");
+            }
+            if (getDataType(sqlType) == DataType.TypeString && table.inference.getMaxLength(k) > tableSizes.get(columnNames[k])) {
+                throw new IllegalArgumentException("Column " + columnNames[k] + " of the sheet has values of up to " + table.inference.getMaxLength(k)
+                        + " characters which do not fit the column size " + tableSizes.get(columnNames[k]) + " of table " + tableName + ", it needs to be recreated");
+            }
+            sqlTypes[k] = sqlType;
+            dataTypes[k] = getDataType(sqlType);
+        }
+
+        //.... Collect the row hashes stored in the table
+        StringBuilder sb = new StringBuilder(500);
+        StringBuilder where = new StringBuilder(100);
+        sb.append("SELECT ");
+        for (int keyIndex : keyIndices) {
+            sb.append(columnNames[keyIndex]);
+            sb.append(",");
+            where.append(columnNames[keyIndex]);
+            where.append("=? AND ");
+        }
+        where.setLength(where.length() - 5);
+        sb.append(ROW_HASH_COLUMN);
+        sb.append(" FROM ");
+        sb.append(tableName);
+
+        Map<List<Object>, Long> storedHashes = new HashMap<>();
+        try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(DEFAULT_FETCH_SIZE);
+            ResultSet rs = statement.executeQuery(sb.toString());
+            while (rs.next()) {
+                List<Object> key = new ArrayList<>(keyIndices.length);
+                for (int k = 1; k <= keyIndices.length; k++) {
+                    key.add(rs.getObject(k, getJavaType(dataTypes[keyIndices[k - 1]])));
+                }
+                long hash = rs.getLong(keyIndices.length + 1);
+                storedHashes.put(key, rs.wasNull() ? null : hash);
+            }
+        }
+
+        //.... The statements for the changes
+        sb.setLength(0);
+        sb.append("INSERT INTO ");
+        sb.append(tableName);
+        sb.append(" (");
+        for (String columnName : columnNames) {
+            sb.append(columnName);
+            sb.append(",");
+        }
+        sb.append(ROW_HASH_COLUMN);
+        sb.append(") VALUES (");
+        for (int k = 0; k <= columnNames.length; k++) {
+            sb.append("?,");
+        }
+        sb.setLength(sb.length() - 1);
+        sb.append(")");
+        String insertSql = sb.toString();
+
+        sb.setLength(0);
+        sb.append("UPDATE ");
+        sb.append(tableName);
+        sb.append(" SET ");
+        for (String columnName : columnNames) {
+            sb.append(columnName);
+            sb.append("=?,");
+        }
+        sb.append(ROW_HASH_COLUMN);
+        sb.append("=? WHERE ");
+        sb.append(where);
+        String updateSql = sb.toString();
+
+        String deleteSql = "DELETE FROM " + tableName + " WHERE " + where;
+
+        boolean autoCommit = connection.getAutoCommit();
+        long startTime = System.currentTimeMillis();
+        int insertCount = 0;
+        int updateCount = 0;
+        int deleteCount = 0;
+        int unchangedCount = 0;
+        try (PreparedStatement insertStatement = connection.prepareStatement(insertSql);
+                PreparedStatement updateStatement = connection.prepareStatement(updateSql);
+                PreparedStatement deleteStatement = connection.prepareStatement(deleteSql)) {
+            connection.setAutoCommit(false);
+            Set<List<Object>> sheetKeys = new HashSet<>();
+            List<Object> values = new ArrayList<>(columnNames.length);
+
+            for (int r = sheet.getFirstRowNum() + 1; r <= sheet.getLastRowNum(); r++) {
+                Row row = sheet.getRow(r);
+                if (row == null) {
+                    continue;
+                }
+                values.clear();
+                for (int c = table.startCol; c < table.endCol; c++) {
+                    int k = c - table.startCol;
+                    values.add(getCellValue(row.getCell(c), dataTypes[k], sqlTypes[k]));
+                }
+                List<Object> key = new ArrayList<>(keyIndices.length);
+                for (int keyIndex : keyIndices) {
+                    if (values.get(keyIndex) == null) {
+                        throw new IllegalArgumentException("Row " + r + " has no value for key column " + columnNames[keyIndex]);
+                    }
+                    key.add(values.get(keyIndex));
+                }
+                if (!sheetKeys.add(key)) {
+                    throw new IllegalArgumentException("Row " + r + " has a duplicate key " + key);
+                }
+
+                long hash = getRowHash(values);
+                if (!storedHashes.containsKey(key)) {
+                    setValues(insertStatement, 1, values, sqlTypes);
+                    insertStatement.setLong(values.size() + 1, hash);
+                    insertStatement.addBatch();
+                    if (++insertCount % batchSize == 0) {
+                        insertStatement.executeBatch();
+                    }
+                } else if (!Long.valueOf(hash).equals(storedHashes.remove(key))) {
+                    setValues(updateStatement, 1, values, sqlTypes);
+                    updateStatement.setLong(values.size() + 1, hash);
+                    for (int k = 0; k < keyIndices.length; k++) {
+                        setValue(updateStatement, values.size() + 2 + k, key.get(k), sqlTypes[keyIndices[k]]);
+                    }
+                    updateStatement.addBatch();
+                    if (++updateCount % batchSize == 0) {
+                        updateStatement.executeBatch();
+                    }
+                } else {
+                    unchangedCount++;
+                }
+            }
+
+            //.... What is left in the map is no longer in the sheet
+            for (List<Object> key : storedHashes.keySet()) {
+                for (int k = 0; k < keyIndices.length; k++) {
+                    setValue(deleteStatement, k + 1, key.get(k), sqlTypes[keyIndices[k]]);
+                }
+                deleteStatement.addBatch();
+                if (++deleteCount % batchSize == 0) {
+                    deleteStatement.executeBatch();
+                }
+            }
+
+            insertStatement.executeBatch();
+            updateStatement.executeBatch();
+            deleteStatement.executeBatch();
+            connection.commit();
+
+        } catch (SQLException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        long duration = Math.max(1L, System.currentTimeMillis() - startTime);
+        LOGGER.log(Level.INFO, "Synchronized table {0} in {1} ms: {2} inserted, {3} updated, {4} deleted, {5} unchanged",
+                new Object[]{tableName, duration, insertCount, updateCount, deleteCount, unchangedCount});
+    }
+
+    /**
+     * Uses the default varchar length and batch size
+     *
+     * @param sheet
+     * @param tableName
+     * @param keyColumns
+     * @throws SQLException
+     * @throws ClassNotFoundException
+     * @throws IllegalAccessException
+     * @throws InstantiationException
+     */
+    public void syncExcelSheetToDatabase(Sheet sheet, String tableName, List<String> keyColumns) throws SQLException, ClassNotFoundException, IllegalAccessException, InstantiationException {
+        syncExcelSheetToDatabase(sheet, tableName, keyColumns, DEFAULT_VARCHAR_LENGTH, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * The value of a cell as the Java object matching the inferred column
+     * type, i. e. what <code>ResultSet.getObject()</code> returns for the
+     * column. Blank cells are null except for VARCHAR columns.
+     *
+     * @param cell
+     * @param dataType
+     * @param sqlType
+     * @return
+     */
+    private Object getCellValue(Cell cell, DataType dataType, int sqlType) {
+        CellType cellType = cell == null ? CellType.BLANK : cell.getCellType();
+        if (cellType == CellType.FORMULA) {
+            cellType = cell.getCachedFormulaResultType();
+        }
+        boolean blank = cellType == CellType.BLANK || (cellType == CellType.STRING && cell.getStringCellValue().isBlank());
+        if (blank) {
+            return sqlType == Types.VARCHAR ? "" : null;
+        }
+        switch (dataType) {
+            case TypeInteger:
+                return (int) cell.getNumericCellValue();
+            case TypeLong:
+                return (long) cell.getNumericCellValue();
+            case TypeDouble:
+                return cell.getNumericCellValue();
+            case TypeBoolean:
+                return cell.getBooleanCellValue();
+            case TypeDate:
+                return LocalDate.ofEpochDay(new ExcelCellData(cell).getEpochDay());
+            case TypeTimestamp:
+                return ExcelCellData.toLocalDateTime(new ExcelCellData(cell).getEpochMilli());
+            default:
+                return cellType == CellType.STRING ? cell.getStringCellValue() : new ExcelCellData(cell).getProcessedData();
+        }
+    }
+
+    /**
+     *
+     * @param statement
+     * @param index
+     * @param values
+     * @param sqlTypes
+     * @throws SQLException
+     */
+    private void setValues(PreparedStatement statement, int index, List<Object> values, int[] sqlTypes) throws SQLException {
+        for (int k = 0; k < values.size(); k++) {
+            setValue(statement, index + k, values.get(k), sqlTypes[k]);
+        }
+    }
+
+    /**
+     * The data type used for the values of a table column
+     *
+     * @param sqlType
+     * @return
+     */
+    private static DataType getDataType(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return DataType.TypeInteger;
+            case Types.BIGINT:
+                return DataType.TypeLong;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return DataType.TypeDouble;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return DataType.TypeBoolean;
+            case Types.DATE:
+                return DataType.TypeDate;
+            case Types.TIMESTAMP:
+                return DataType.TypeTimestamp;
+            default:
+                return DataType.TypeString;
+        }
+    }
+
+    /**
+     * The Java type of the values returned by {@link #getCellValue(Cell, DataType, int)}
+     *
+     * @param dataType
+     * @return
+     */
+    private static Class<?> getJavaType(DataType dataType) {
+        switch (dataType) {
+            case TypeInteger:
+                return Integer.class;
+            case TypeLong:
+                return Long.class;
+            case TypeDouble:
+                return Double.class;
+            case TypeBoolean:
+                return Boolean.class;
+            case TypeDate:
+                return LocalDate.class;
+            case TypeTimestamp:
+                return LocalDateTime.class;
+            default:
+                return String.class;
+        }
+    }
+
+    /**
+     * @param inferredType the type inferred from the sheet
+     * @param sqlType the type of the table column
+     * @return true if all values of the inferred type can be stored in the
+     * column
+     */
+    private static boolean isCompatible(DataType inferredType, int sqlType) {
+        switch (getDataType(sqlType)) {
+            case TypeInteger:
+                return inferredType == DataType.TypeInteger;
+            case TypeLong:
+                return inferredType == DataType.TypeInteger || inferredType == DataType.TypeLong;
+            case TypeDouble:
+                return inferredType.isOfDataKind(DataKind.NumericKind);
+            case TypeBoolean:
+                return inferredType == DataType.TypeBoolean;
+            case TypeDate:
+                return inferredType == DataType.TypeDate;
+            case TypeTimestamp:
+                return inferredType.isOfDataKind(DataKind.DateKind);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     *
+     * @param statement
+     * @param index
+     * @param value
+     * @param sqlType
+     * @throws SQLException
+     */
+    private void setValue(PreparedStatement statement, int index, Object value, int sqlType) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, sqlType);
+        } else {
+            statement.setObject(index, value, sqlType);
+        }
+    }
+
+    /**
+     * A 64 bit FNV-1a hash of the string representation of the row values
+     *
+     * @param values
+     * @return
+     */
+    private static long getRowHash(List<Object> values) {
+        long hash = 0xcbf29ce484222325L;
+        for (Object value : values) {
+            String s = value == null ? "\u0001" : value.toString();
+            for (int i = 0; i < s.length(); i++) {
+                hash ^= s.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash *= 0x100000001b3L;    // Separator
+        }
+        return hash;
     }
 
 }
@@ -25,25 +25,77 @@ package org.ml.tools.excel;
 
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.ml.tools.FileType;
+import org.ml.tools.logging.LoggerFactory;
+import org.xml.sax.SAXException;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author osboxes
  */
 public class ExcelTools {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExcelTools.class.getName());
+
+    /**
+     * The work done for one sheet in the parallel modes
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    private interface SheetTask<T> {
+
+        T parse(String sheetName) throws Exception;
+    }
+
+    /**
+     * The work done with a workbook opened by readWorkbook()
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    private interface WorkbookFunction<T> {
+
+        T apply(Workbook workbook) throws IOException;
+    }
+
     /**
      * @param type
      * @return
@@ -121,11 +173,28 @@ public class ExcelTools {
      * Completely empty rows are skipped
      * <p>
      * Rows where the first cell starts with a string starting with a '#' are also skipped as comments
+     * <p>
+     * For large sheets, {@link ParsedSheet} holds the same data in typed
+     * columns with much less memory
      *
      * @param sheet
      * @return
      */
     public static List<List<String>> getParsedSheet(Sheet sheet) {
+        return getParsedSheet(sheet, null);
+    }
+
+    /**
+     * Same as {@link #getParsedSheet(Sheet)}, but only for the rows and columns
+     * selected; cells outside of the selection are not converted, rows rejected
+     * by the row filter of the selection only cost the cells the filter looks
+     * at
+     *
+     * @param sheet
+     * @param selection the selection or null for all rows and columns
+     * @return
+     */
+    public static List<List<String>> getParsedSheet(Sheet sheet, SheetSelection selection) {
         if (sheet == null) {
             throw new NullPointerException("sheet may not be null");
         }
@@ -138,51 +207,87 @@ public class ExcelTools {
             Row row = sheet.getRow(r);
             if (row != null) {
                 int icol = row.getFirstCellNum();
-                if (icol < minColNumber) {
+                if (icol >= 0 && icol < minColNumber) {    // -1 for rows without cells
                     minColNumber = icol;
                 }
             }
         }
 
-        //.... Now parse all the rows
-        for (int r = sheet.getFirstRowNum(); r <= sheet.getLastRowNum(); r++) {
-
+        //.... Now parse the selected rows
+        RowSelector selector = new RowSelector(selection);
+        RowSelector.SheetCells cells = new RowSelector.SheetCells(minColNumber);
+        int lastRow = Math.min(sheet.getLastRowNum(), selector.getLastRow());
+        for (int r = Math.max(sheet.getFirstRowNum(), selector.getFirstRow()); r <= lastRow; r++) {
             Row row = sheet.getRow(r);
-
             if (row != null) {
+                List<String> rowData = selector.select(r, cells.setRow(row));
+                if (rowData != null) {
+                    result.add(rowData);
+                }
+            }
+        }
+        return result;
+    }
 
-                List<String> rowData = new ArrayList<>();
-                boolean foundValidData = false;
-                int lastColumnWithValidData = 0;
-
-                for (int icol = minColNumber; icol <= row.getLastCellNum(); icol++) {
+    /**
+     * Evaluate all formulas of the sheet once and store the results as the
+     * cached formula results of the cells, which is what
+     * {@link ExcelCellData} and {@link #getParsedSheet(Sheet)} read. This is
+     * needed for sheets where the cached results are stale or missing, e. g.
+     * sheets created or modified with POI. Formulas which can not be evaluated
+     * keep their previous cached result.
+     *
+     * @param sheet
+     * @return the number of formulas evaluated
+     */
+    public static int evaluateFormulas(Sheet sheet) {
+        if (sheet == null) {
+            throw new NullPointerException("sheet may not be null");
+        }
+        return evaluateFormulas(sheet, sheet.getWorkbook().getCreationHelper().createFormulaEvaluator());
+    }
 
-                    if (row.getCell(icol) != null) {
+    /**
+     * Evaluate all formulas of the workbook once, see
+     * {@link #evaluateFormulas(Sheet)}. One evaluator is used for all sheets
+     * such that results referenced across sheets are evaluated only once.
+     *
+     * @param workbook
+     * @return the number of formulas evaluated
+     */
+    public static int evaluateFormulas(Workbook workbook) {
+        if (workbook == null) {
+            throw new NullPointerException("workbook may not be null");
+        }
+        FormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        int count = 0;
+        for (Sheet sheet : workbook) {
+            count += evaluateFormulas(sheet, evaluator);
+        }
+        return count;
+    }
 
-                        ExcelCellData exc = new ExcelCellData(row.getCell(icol));
-                        String data = exc.getProcessedData().trim();
-                        rowData.add(data);
-                        if (data.length() > 0) {
-                            //.... Abort here if first cell starts with a #
-                            if (data.startsWith("#") && icol == minColNumber) {
-                                break;
-                            }
-                            foundValidData = true;
-                            lastColumnWithValidData = icol;
-                        }
-                    } else {
-                        rowData.add("");
+    /**
+     * @param sheet
+     * @param evaluator
+     * @return
+     */
+    private static int evaluateFormulas(Sheet sheet, FormulaEvaluator evaluator) {
+        int count = 0;
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                if (cell.getCellType() == CellType.FORMULA) {
+                    try {
+                        evaluator.evaluateFormulaCell(cell);
+                        count++;
+                    } catch (RuntimeException ex) {
+                        LOGGER.log(Level.WARNING, "Could not evaluate formula {0} in cell {1}: {2}",
+                                new Object[]{cell.getCellFormula(), cell.getAddress(), ex.getMessage()});
                     }
-
-                }
-
-                if (foundValidData) {
-                    //.... Need to remove any trailing blanks / empty strings
-                    result.add(rowData.subList(0, lastColumnWithValidData + 1));
                 }
             }
         }
-        return result;
+        return count;
     }
 
     /**
@@ -198,6 +303,7 @@ public class ExcelTools {
         }
 
         List<List<String>> result = new ArrayList<>();
+        ExcelCellData exc = new ExcelCellData();
 
         for (int r = sheet.getFirstRowNum(); r <= sheet.getLastRowNum(); r++) {
 
@@ -210,8 +316,7 @@ public class ExcelTools {
                 //.... First cell needs to contain data else everything after is skipped as well
                 if (row.getCell(icol) != null) {
 
-                    ExcelCellData exc = new ExcelCellData(row.getCell(icol++));
-                    String data = exc.getProcessedData().trim();
+                    String data = exc.setCell(row.getCell(icol++)).getProcessedData().trim();
 
                     //.... We also skip comment rows where the first cell starts with a #
                     if (data.length() > 0 && !data.startsWith("#")) {
@@ -224,8 +329,7 @@ public class ExcelTools {
                         for (int c = icol; c <= row.getLastCellNum(); c++) {
 
                             if (row.getCell(c) != null) {
-                                exc = new ExcelCellData(row.getCell(c));
-                                data = exc.getProcessedData().trim();
+                                data = exc.setCell(row.getCell(c)).getProcessedData().trim();
                                 if (data.length() > 0) {
                                     rowData.add(data);
                                 }
@@ -239,4 +343,479 @@ public class ExcelTools {
         }
         return result;
     }
+
+    /**
+     * Streaming alternative to {@link #getParsedSheet(Sheet)} for XLSX and CSV
+     * files: the rows are parsed with the same semantics, but handed to the
+     * consumer one at a time without loading the workbook into memory. CSV
+     * files are read without POI, see {@link CsvReader} for the format.
+     *
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet;
+     * ignored for CSV files
+     * @param consumer
+     * @throws IOException
+     */
+    public static void streamSheet(Path path, String sheetName, RowConsumer consumer) throws IOException {
+        streamSheet(path, sheetName, null, consumer);
+    }
+
+    /**
+     * Same as {@link #streamSheet(Path, String, RowConsumer)}, but only for the
+     * rows and columns selected. The content of cells outside of the selection
+     * is skipped by the readers, and reading stops after the last selected row.
+     *
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet;
+     * ignored for CSV files
+     * @param selection the selection or null for all rows and columns
+     * @param consumer
+     * @throws IOException
+     */
+    public static void streamSheet(Path path, String sheetName, SheetSelection selection, RowConsumer consumer) throws IOException {
+        if (consumer == null) {
+            throw new NullPointerException("consumer may not be null");
+        }
+        try (SheetReader reader = openSheetReader(path, sheetName, selection)) {
+            while (reader.hasNext()) {
+                List<String> rowData = reader.next();
+                consumer.accept(reader.getRowIndex(), rowData);
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Same as {@link #streamSheet(Path, String, RowConsumer)}, but the rows are
+     * returned as a lazy stream. The stream holds the workbook open and needs
+     * to be closed, e. g. in a try-with-resources statement.
+     *
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet;
+     * ignored for CSV files
+     * @return
+     * @throws IOException
+     */
+    public static Stream<List<String>> streamSheet(Path path, String sheetName) throws IOException {
+        return streamSheet(path, sheetName, (SheetSelection) null);
+    }
+
+    /**
+     * Same as {@link #streamSheet(Path, String)}, but only for the rows and columns selected, see
+     * {@link #streamSheet(Path, String, SheetSelection, RowConsumer)}
+     *
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet; ignored for CSV files
+     * @param selection the selection or null for all rows and columns
+     * @return
+     * @throws IOException
+     */
+    public static Stream<List<String>> streamSheet(Path path, String sheetName, SheetSelection selection) throws IOException {
+        SheetReader reader = openSheetReader(path, sheetName, selection);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+    }
+
+    /**
+     * Same as {@link #getParsedSheet(Sheet)}, but for a sheet in a file. XLSX
+     * and CSV files are read with the streaming readers, other files are loaded
+     * as a workbook first.
+     *
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet;
+     * ignored for CSV files
+     * @return
+     * @throws IOException
+     */
+    public static List<List<String>> getParsedSheet(Path path, String sheetName) throws IOException {
+        return getParsedSheet(path, sheetName, null);
+    }
+
+    /**
+     * Same as {@link #getParsedSheet(Path, String)}, but only for the rows and
+     * columns selected, see {@link #getParsedSheet(Sheet, SheetSelection)}
+     *
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet;
+     * ignored for CSV files
+     * @param selection the selection or null for all rows and columns
+     * @return
+     * @throws IOException
+     */
+    public static List<List<String>> getParsedSheet(Path path, String sheetName, SheetSelection selection) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        if (isStreamable(path)) {
+            List<List<String>> result = new ArrayList<>();
+            streamSheet(path, sheetName, selection, (rowIndex, rowData) -> result.add(rowData));
+            return result;
+        }
+        return readWorkbook(path, workbook -> {
+            Sheet sheet = sheetName == null ? workbook.getSheetAt(0) : workbook.getSheet(sheetName);
+            if (sheet == null) {
+                throw new IllegalArgumentException("Workbook does not contain a sheet named " + sheetName);
+            }
+            return getParsedSheet(sheet, selection);
+        });
+    }
+
+    /**
+     * Write the parsed rows of a sheet (see {@link #getParsedSheet(Sheet)}) to
+     * a CSV file, such that reading the file with
+     * {@link #getParsedSheet(Path, String)} returns the same rows
+     *
+     * @param sheet
+     * @param path
+     * @throws IOException
+     */
+    public static void writeCsv(Sheet sheet, Path path) throws IOException {
+        if (sheet == null) {
+            throw new NullPointerException("sheet may not be null");
+        }
+        try (CsvWriter writer = new CsvWriter(path)) {
+            writer.writeRows(getParsedSheet(sheet));
+        }
+    }
+
+    /**
+     * Apply the parser to all sheets of the workbook, one sheet after the
+     * other. The workbook is loaded once (read-only for XLSX). The usermodel
+     * of POI is not thread-safe, so the sheets are not parsed concurrently;
+     * use {@link #parseWorkbookRows(Path, Function)} to parse the sheets of
+     * XLSX files in parallel.
+     *
+     * @param <T>
+     * @param path
+     * @param parser
+     * @return the parser results keyed by sheet name, in workbook order
+     * @throws IOException
+     */
+    public static <T> Map<String, T> parseWorkbook(Path path, Function<Sheet, T> parser) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        if (parser == null) {
+            throw new NullPointerException("parser may not be null");
+        }
+        return readWorkbook(path, workbook -> parseSheets(workbook, parser));
+    }
+
+    /**
+     * Streaming variant of {@link #parseWorkbook(Path, Function)} for XLSX
+     * files: each sheet is read with its own streaming reader in a separate
+     * task, the rows are handed to the parser as a stream with the same
+     * semantics as {@link #getParsedSheet(Sheet)}. The shared strings are
+     * loaded once and shared read-only by all tasks. A CSV file is treated as
+     * a workbook with a single sheet named after the file.
+     *
+     * @param <T>
+     * @param path
+     * @param parser
+     * @return the parser results keyed by sheet name, in workbook order
+     * @throws IOException
+     */
+    public static <T> Map<String, T> parseWorkbookRows(Path path, Function<Stream<List<String>>, T> parser) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        if (parser == null) {
+            throw new NullPointerException("parser may not be null");
+        }
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(FileType.CSV.getExtension())) {
+            Map<String, T> result = new LinkedHashMap<>();
+            try (Stream<List<String>> rows = streamSheet(path, null)) {
+                result.put(fileName.substring(0, fileName.length() - FileType.CSV.getExtension().length()), parser.apply(rows));
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            return result;
+        }
+        if (!fileName.endsWith(FileType.XLSX.getExtension())) {
+            throw new UnsupportedOperationException("Streaming is only supported for XLSX and CSV files: " + path);
+        }
+
+        OPCPackage workbookPackage;
+        try {
+            workbookPackage = OPCPackage.open(path.toFile(), PackageAccess.READ);
+        } catch (InvalidFormatException ex) {
+            throw new IOException("Could not open " + path, ex);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(workbookPackage);
+            SharedStrings sharedStrings = new ReadOnlySharedStringsTable(workbookPackage);
+            Map<String, PackagePart> sheetParts = new LinkedHashMap<>();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                sheetParts.put(sheets.getSheetName(), sheets.getSheetPart());
+            }
+
+            return parseInParallel(new ArrayList<>(sheetParts.keySet()), sheetName -> {
+                try (XlsxSheetReader sheetReader = new XlsxSheetReader(sheetParts.get(sheetName), sharedStrings, null);
+                        Stream<List<String>> rows = StreamSupport.stream(Spliterators.spliteratorUnknownSize(sheetReader, Spliterator.ORDERED | Spliterator.NONNULL), false)) {
+                    return parser.apply(rows);
+                }
+            });
+        } catch (OpenXML4JException | SAXException ex) {
+            throw new IOException("Could not read " + path, ex);
+        } finally {
+            workbookPackage.revert();
+        }
+    }
+
+    /**
+     * Parse all sheets of a workbook, concurrently with the streaming readers
+     * for XLSX and CSV files
+     *
+     * @param path
+     * @return the parsed sheets as returned by {@link #getParsedSheet(Sheet)},
+     * keyed by sheet name
+     * @throws IOException
+     */
+    public static Map<String, List<List<String>>> getParsedSheets(Path path) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        if (isStreamable(path)) {
+            return parseWorkbookRows(path, rows -> rows.collect(Collectors.toList()));
+        }
+        return parseWorkbook(path, ExcelTools::getParsedSheet);
+    }
+
+    /**
+     * Compare two versions of a sheet in XLSX or CSV files and report the
+     * added, removed and changed rows to the consumer. The rows are parsed with
+     * the semantics of {@link #getParsedSheet(Sheet)}, the first row is the
+     * header row and the rows are matched by the values of the key columns,
+     * which must be unique in each version. Only columns present in both
+     * versions are compared. Both files are streamed, only hashes of the rows
+     * of the old sheet and the new versions of changed rows are held in memory
+     * (see {@link SheetDiffer}). Added rows are reported while the new sheet is
+     * read, removed and changed rows afterwards in the order of the old sheet.
+     *
+     * @param oldFile
+     * @param newFile
+     * @param sheetName the name of the sheet in both files or null for the
+     * first sheet; ignored for CSV files
+     * @param keyColumns the header names of the key columns (ignoring case)
+     * @param consumer
+     * @throws IOException
+     */
+    public static void diff(Path oldFile, Path newFile, String sheetName, List<String> keyColumns, DiffConsumer consumer) throws IOException {
+        new SheetDiffer(oldFile, newFile, sheetName, keyColumns).run(consumer);
+    }
+
+    /**
+     * Same as {@link #diff(Path, Path, String, List, DiffConsumer)} for the
+     * first sheets, with the differences collected in memory
+     *
+     * @param oldFile
+     * @param newFile
+     * @param keyColumns the header names of the key columns (ignoring case)
+     * @return
+     * @throws IOException
+     */
+    public static SheetDiff diff(Path oldFile, Path newFile, List<String> keyColumns) throws IOException {
+        SheetDiff sheetDiff = new SheetDiff();
+        diff(oldFile, newFile, null, keyColumns, sheetDiff);
+        return sheetDiff;
+    }
+
+    /**
+     * Map the rows of a sheet to records. The record components are matched
+     * to the columns of the header row by name, ignoring case and any
+     * characters other than letters and digits; all rows after the header row
+     * which are not empty are mapped. The mapping is resolved once and the
+     * values are extracted without boxing, see {@link RecordBinder} for the
+     * supported component types.
+     *
+     * @param <R>
+     * @param sheet
+     * @param type
+     * @param headerRow the 0-based index of the header row
+     * @return
+     */
+    public static <R extends Record> List<R> mapRows(Sheet sheet, Class<R> type, int headerRow) {
+        if (sheet == null) {
+            throw new NullPointerException("sheet may not be null");
+        }
+        if (type == null) {
+            throw new NullPointerException("type may not be null");
+        }
+        Row header = sheet.getRow(headerRow);
+        if (header == null) {
+            throw new IllegalArgumentException("Sheet " + sheet.getSheetName() + " does not contain a header row " + headerRow);
+        }
+
+        RecordBinder<R> binder = new RecordBinder<>(type, header);
+        List<R> result = new ArrayList<>(Math.max(0, sheet.getLastRowNum() - headerRow));
+        for (int r = headerRow + 1; r <= sheet.getLastRowNum(); r++) {
+            Row row = sheet.getRow(r);
+            if (row != null && !RecordBinder.isEmpty(row)) {
+                result.add(binder.bind(row));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #mapRows(Sheet, Class, int)} for the first sheet of a
+     * workbook
+     *
+     * @param <R>
+     * @param path
+     * @param type
+     * @param headerRow the 0-based index of the header row
+     * @return
+     * @throws IOException
+     */
+    public static <R extends Record> List<R> mapRows(Path path, Class<R> type, int headerRow) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        return readWorkbook(path, workbook -> mapRows(workbook.getSheetAt(0), type, headerRow));
+    }
+
+    /**
+     * Open a workbook (read-only for XLSX), apply the function and release the
+     * workbook again
+     *
+     * @param <T>
+     * @param path
+     * @param function
+     * @return
+     * @throws IOException
+     */
+    private static <T> T readWorkbook(Path path, WorkbookFunction<T> function) throws IOException {
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(FileType.XLSX.getExtension())) {
+            OPCPackage workbookPackage;
+            try {
+                workbookPackage = OPCPackage.open(path.toFile(), PackageAccess.READ);
+            } catch (InvalidFormatException ex) {
+                throw new IOException("Could not open " + path, ex);
+            }
+            try {
+                return function.apply(new XSSFWorkbook(workbookPackage));
+            } finally {
+                workbookPackage.revert();
+            }
+        } else if (fileName.endsWith(FileType.XLS.getExtension())) {
+            try (InputStream stream = Files.newInputStream(path); Workbook workbook = new HSSFWorkbook(stream)) {
+                return function.apply(workbook);
+            }
+        } else {
+            throw new UnsupportedOperationException("Unknown / unsupported file type: " + path);
+        }
+    }
+
+    /**
+     * @param <T>
+     * @param workbook
+     * @param parser
+     * @return
+     */
+    private static <T> Map<String, T> parseSheets(Workbook workbook, Function<Sheet, T> parser) {
+        Map<String, T> results = new LinkedHashMap<>();
+        for (Sheet sheet : workbook) {
+            results.put(sheet.getSheetName(), parser.apply(sheet));
+        }
+        return results;
+    }
+
+    /**
+     * Run one task per sheet on a thread pool sized to the number of sheets
+     * and processors
+     *
+     * @param <T>
+     * @param sheetNames
+     * @param task
+     * @return
+     * @throws IOException
+     */
+    private static <T> Map<String, T> parseInParallel(List<String> sheetNames, SheetTask<T> task) throws IOException {
+        int threads = Math.max(1, Math.min(sheetNames.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Map<String, Future<T>> futures = new LinkedHashMap<>();
+            for (String sheetName : sheetNames) {
+                futures.put(sheetName, executor.submit(() -> task.parse(sheetName)));
+            }
+            Map<String, T> results = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().get());
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing sheets", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Open the streaming reader matching the file extension
+     *
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet; ignored for CSV files
+     * @return
+     * @throws IOException
+     */
+    static SheetReader openSheetReader(Path path, String sheetName) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        String fileName = path.getFileName().toString();
+        if (fileName.endsWith(FileType.CSV.getExtension())) {
+            return CsvReader.open(path);
+        }
+        if (!fileName.endsWith(FileType.XLSX.getExtension())) {
+            throw new UnsupportedOperationException("Streaming is only supported for XLSX and CSV files: " + path);
+        }
+        return XlsxSheetReader.open(path, sheetName);
+    }
+
+    /**
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet; ignored for CSV files
+     * @param selection the selection or null for all rows and columns
+     * @return
+     * @throws IOException
+     */
+    static SheetReader openSheetReader(Path path, String sheetName, SheetSelection selection) throws IOException {
+        SheetReader reader = openSheetReader(path, sheetName);
+        reader.setSelection(selection);
+        return reader;
+    }
+
+    /**
+     * @param path
+     * @return true if there is a streaming reader for the file
+     */
+    private static boolean isStreamable(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.endsWith(FileType.XLSX.getExtension()) || fileName.endsWith(FileType.CSV.getExtension());
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Bulk loader for H2 databases using the <code>CSVREAD</code> table function.
+ * Note that the CSV file is read by the database server, i. e. this only works
+ * for embedded databases or servers sharing the file system.
+ *
+ * @author Dr. Matthias Laux
+ */
+public class H2BulkLoader implements BulkLoader {
+
+    /**
+     * @param connection
+     * @return
+     * @throws SQLException
+     */
+    @Override
+    public boolean isSupported(Connection connection) throws SQLException {
+        if (connection == null) {
+            throw new NullPointerException("connection may not be null");
+        }
+        return "H2".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
+    }
+
+    /**
+     * @param connection
+     * @param tableName
+     * @param columnNames
+     * @param csvFile
+     * @throws SQLException
+     */
+    @Override
+    public void load(Connection connection, String tableName, List<String> columnNames, Path csvFile) throws SQLException {
+        if (connection == null) {
+            throw new NullPointerException("connection may not be null");
+        }
+        if (tableName == null) {
+            throw new NullPointerException("tableName may not be null");
+        }
+        if (columnNames == null) {
+            throw new NullPointerException("columnNames may not be null");
+        }
+        if (csvFile == null) {
+            throw new NullPointerException("csvFile may not be null");
+        }
+
+        //.... CSVREAD does not accept parameters, hence the literals
+        String options = "charset=UTF-8 fieldSeparator=" + SEPARATOR + " fieldDelimiter=" + QUOTE;
+        String sql = "INSERT INTO " + tableName + " (" + String.join(",", columnNames) + ") SELECT * FROM CSVREAD("
+                + toLiteral(csvFile.toAbsolutePath().toString()) + ", NULL, " + toLiteral(options) + ")";
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    /**
+     * @param value
+     * @return
+     */
+    private static String toLiteral(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.ml.tools.DataType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A columnar, read-only representation of a parsed sheet. It holds the same
+ * data as {@link ExcelTools#getParsedSheet(Sheet)}, but stores each column in
+ * a primitive array matching the type of the column (as determined from all
+ * data cells of the column) instead of one string per cell. String columns
+ * are dictionary encoded, i. e. each distinct value is stored once and the
+ * cells refer to it by an integer code.
+ * <p>
+ * By default the first row is taken as the header row: it is kept apart as
+ * strings and does not take part in the type inference, and the row indices
+ * of the accessors refer to the data rows after it.
+ * <p>
+ * The column types used are TypeInteger (<code>int[]</code>), TypeLong
+ * (<code>long[]</code>), TypeDouble, TypeDate and TypeTimestamp
+ * (<code>double[]</code>, dates as Excel serial date values), TypeBoolean
+ * (<code>boolean[]</code>) and TypeString for everything else.
+ *
+ * @author Dr. Matthias Laux
+ */
+public final class ParsedSheet {
+
+    private final List<String> header;
+    private final int rowCount;
+    private final int[] rowLengths;
+    private final Column[] columns;
+
+    /**
+     * The data of one column; only the array matching the type is allocated
+     */
+    private static final class Column {
+
+        private final DataType dataType;
+        private final BitSet present;
+        private int[] ints;
+        private long[] longs;
+        private double[] doubles;
+        private boolean[] booleans;
+        private int[] codes;
+        private String[] dictionary;
+
+        private Column(DataType dataType, int rowCount) {
+            this.dataType = dataType;
+            present = new BitSet(rowCount);
+            switch (dataType) {
+                case TypeInteger:
+                    ints = new int[rowCount];
+                    break;
+                case TypeLong:
+                    longs = new long[rowCount];
+                    break;
+                case TypeDouble:
+                case TypeDate:
+                case TypeTimestamp:
+                    doubles = new double[rowCount];
+                    break;
+                case TypeBoolean:
+                    booleans = new boolean[rowCount];
+                    break;
+                default:
+                    codes = new int[rowCount];
+            }
+        }
+    }
+
+    /**
+     * Parse the sheet with the same rules as
+     * {@link ExcelTools#getParsedSheet(Sheet)}: all rows start at the lowest
+     * column used in the sheet, completely empty rows and rows where the first
+     * cell starts with a '#' are skipped. The first remaining row is the
+     * header row.
+     *
+     * @param sheet
+     */
+    public ParsedSheet(Sheet sheet) {
+        this(sheet, true);
+    }
+
+    /**
+     * Same as {@link #ParsedSheet(Sheet)}, optionally for sheets without a
+     * header row where all rows are data rows
+     *
+     * @param sheet
+     * @param hasHeader true if the first row is the header row
+     */
+    public ParsedSheet(Sheet sheet, boolean hasHeader) {
+        if (sheet == null) {
+            throw new NullPointerException("sheet may not be null");
+        }
+
+        //.... Search for the lowest start cell number
+        int minColNumber = Integer.MAX_VALUE;
+        for (int r = sheet.getFirstRowNum(); r <= sheet.getLastRowNum(); r++) {
+            Row row = sheet.getRow(r);
+            if (row != null && row.getFirstCellNum() >= 0) {
+                minColNumber = Math.min(minColNumber, row.getFirstCellNum());
+            }
+        }
+
+        //.... Select the rows and their lengths without trailing blanks
+        List<Row> rows = new ArrayList<>();
+        int[] lengths = new int[16];
+        int columnCount = 0;
+        for (int r = sheet.getFirstRowNum(); r <= sheet.getLastRowNum(); r++) {
+            Row row = sheet.getRow(r);
+            if (row == null) {
+                continue;
+            }
+            int length = 0;
+            for (int icol = minColNumber; icol <= row.getLastCellNum(); icol++) {
+                Cell cell = row.getCell(icol);
+                if (cell != null && !isBlank(cell)) {
+                    if (icol == minColNumber && isComment(cell)) {
+                        break;
+                    }
+                    length = icol - minColNumber + 1;
+                }
+            }
+            if (length > 0) {
+                if (rows.size() == lengths.length) {
+                    lengths = Arrays.copyOf(lengths, 2 * lengths.length);
+                }
+                lengths[rows.size()] = length;
+                rows.add(row);
+                columnCount = Math.max(columnCount, length);
+            }
+        }
+
+        //.... Keep the header row apart
+        ExcelCellData cellData = new ExcelCellData();
+        int firstRow = 0;
+        if (hasHeader && !rows.isEmpty()) {
+            List<String> headerData = new ArrayList<>(lengths[0]);
+            for (int c = 0; c < lengths[0]; c++) {
+                Cell cell = rows.get(0).getCell(minColNumber + c);
+                headerData.add(cell == null ? (String) DataType.TypeString.getDefaultValue() : cellData.setCell(cell).getProcessedData().trim());
+            }
+            header = List.copyOf(headerData);
+            firstRow = 1;
+        } else {
+            header = null;
+        }
+        rows = rows.subList(firstRow, rows.size());
+        rowCount = rows.size();
+        rowLengths = Arrays.copyOfRange(lengths, firstRow, firstRow + rowCount);
+
+        //.... Determine the column types from the data rows
+        ColumnTypeInference inference = new ColumnTypeInference(columnCount);
+        for (int r = 0; r < rowCount; r++) {
+            Row row = rows.get(r);
+            for (int c = 0; c < rowLengths[r]; c++) {
+                inference.accept(c, row.getCell(minColNumber + c));
+            }
+        }
+
+        //.... Fill the columns
+        columns = new Column[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            Column column = new Column(inference.getType(c), rowCount);
+            Map<String, Integer> codes = column.codes == null ? null : new HashMap<>();
+            for (int r = 0; r < rowCount; r++) {
+                Cell cell = c < rowLengths[r] ? rows.get(r).getCell(minColNumber + c) : null;
+                if (cell == null || isBlank(cell)) {
+                    continue;
+                }
+                column.present.set(r);
+                switch (column.dataType) {
+                    case TypeInteger:
+                        column.ints[r] = (int) cell.getNumericCellValue();
+                        break;
+                    case TypeLong:
+                        column.longs[r] = (long) cell.getNumericCellValue();
+                        break;
+                    case TypeDouble:
+                    case TypeDate:
+                    case TypeTimestamp:
+                        column.doubles[r] = cell.getNumericCellValue();
+                        break;
+                    case TypeBoolean:
+                        column.booleans[r] = cell.getBooleanCellValue();
+                        break;
+                    default:
+                        String value = cellData.setCell(cell).getProcessedData().trim();
+                        Integer code = codes.get(value);
+                        if (code == null) {
+                            code = codes.size();
+                            codes.put(value, code);
+                        }
+                        column.codes[r] = code;
+                }
+            }
+            if (codes != null) {
+                column.dictionary = new String[codes.size()];
+                for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+                    column.dictionary[entry.getValue()] = entry.getKey();
+                }
+            }
+            columns[c] = column;
+        }
+    }
+
+    /**
+     * @return the cells of the header row, null for a sheet parsed without a
+     * header row
+     */
+    public List<String> getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the number of data rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return the number of columns of the longest row, including the header
+     * row
+     */
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param row
+     * @return the number of cells of the row up to the last one with data
+     */
+    public int getRowLength(int row) {
+        return rowLengths[row];
+    }
+
+    /**
+     * @param column
+     * @return
+     */
+    public DataType getDataType(int column) {
+        return columns[column].dataType;
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return true if the cell is blank or missing
+     */
+    public boolean isEmpty(int row, int column) {
+        checkRow(row);
+        return !columns[column].present.get(row);
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the value of a TypeInteger column, 0 for empty cells
+     */
+    public int getInt(int row, int column) {
+        checkRow(row);
+        Column col = getColumn(column, DataType.TypeInteger);
+        return col.ints[row];
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the value of a TypeInteger or TypeLong column, 0 for empty
+     * cells
+     */
+    public long getLong(int row, int column) {
+        checkRow(row);
+        Column col = columns[column];
+        if (col.dataType == DataType.TypeInteger) {
+            return col.ints[row];
+        }
+        return getColumn(column, DataType.TypeLong).longs[row];
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the value of any numeric or date column, 0 for empty cells
+     */
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        Column col = columns[column];
+        switch (col.dataType) {
+            case TypeInteger:
+                return col.ints[row];
+            case TypeLong:
+                return col.longs[row];
+            case TypeDouble:
+            case TypeDate:
+            case TypeTimestamp:
+                return col.doubles[row];
+            default:
+                throw new UnsupportedOperationException("Column " + column + " is of type " + col.dataType);
+        }
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the value of a TypeBoolean column, false for empty cells
+     */
+    public boolean getBoolean(int row, int column) {
+        checkRow(row);
+        return getColumn(column, DataType.TypeBoolean).booleans[row];
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the value of a TypeDate column, null for empty cells
+     */
+    public LocalDate getDate(int row, int column) {
+        checkRow(row);
+        Column col = getColumn(column, DataType.TypeDate);
+        return col.present.get(row) ? DateUtil.getLocalDateTime(col.doubles[row]).toLocalDate() : null;
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the value of a TypeTimestamp column, null for empty cells
+     */
+    public LocalDateTime getTimestamp(int row, int column) {
+        checkRow(row);
+        Column col = getColumn(column, DataType.TypeTimestamp);
+        return col.present.get(row) ? DateUtil.getLocalDateTime(col.doubles[row]) : null;
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the dictionary code of the value of a TypeString column, -1 for
+     * empty cells
+     */
+    public int getStringCode(int row, int column) {
+        checkRow(row);
+        Column col = getColumn(column, DataType.TypeString);
+        return col.present.get(row) ? col.codes[row] : -1;
+    }
+
+    /**
+     * @param column
+     * @return the distinct values of a TypeString column, indexed by their
+     * code
+     */
+    public List<String> getDictionary(int column) {
+        return List.of(getColumn(column, DataType.TypeString).dictionary);
+    }
+
+    /**
+     * @param row
+     * @param column
+     * @return the value of a cell of any type as it would be returned by
+     * {@link ExcelTools#getParsedSheet(Sheet)}, an empty string for empty
+     * cells
+     */
+    public String getString(int row, int column) {
+        checkRow(row);
+        Column col = columns[column];
+        if (!col.present.get(row)) {
+            return (String) DataType.TypeString.getDefaultValue();
+        }
+        switch (col.dataType) {
+            case TypeInteger:
+                return String.valueOf((double) col.ints[row]);
+            case TypeLong:
+                return String.valueOf((double) col.longs[row]);
+            case TypeDouble:
+            case TypeDate:
+            case TypeTimestamp:
+                return String.valueOf(col.doubles[row]);
+            case TypeBoolean:
+                return String.valueOf(col.booleans[row]);
+            default:
+                return col.dictionary[col.codes[row]];
+        }
+    }
+
+    /**
+     * @return the header row and the data in the format of
+     * {@link ExcelTools#getParsedSheet(Sheet)}
+     */
+    public List<List<String>> toList() {
+        List<List<String>> result = new ArrayList<>(rowCount + 1);
+        if (header != null) {
+            result.add(new ArrayList<>(header));
+        }
+        for (int r = 0; r < rowCount; r++) {
+            List<String> rowData = new ArrayList<>(rowLengths[r]);
+            for (int c = 0; c < rowLengths[r]; c++) {
+                rowData.add(getString(r, c));
+            }
+            result.add(rowData);
+        }
+        return result;
+    }
+
+    /**
+     *
+     * @param column
+     * @param dataType
+     * @return
+     */
+    private Column getColumn(int column, DataType dataType) {
+        Column col = columns[column];
+        if (col.dataType != dataType) {
+            throw new UnsupportedOperationException("Column " + column + " is of type " + col.dataType + ", not " + dataType);
+        }
+        return col;
+    }
+
+    /**
+     *
+     * @param row
+     */
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range 0 - " + (rowCount - 1));
+        }
+    }
+
+    /**
+     * @param cell
+     * @return true if the parsed string of the cell would be empty
+     */
+    private static boolean isBlank(Cell cell) {
+        CellType cellType = cell.getCellType();
+        if (cellType == CellType.FORMULA) {
+            cellType = cell.getCachedFormulaResultType();
+        }
+        switch (cellType) {
+            case BLANK:
+                return true;
+            case STRING:
+                return cell.getStringCellValue().trim().isEmpty();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param cell
+     * @return true if the cell is a string starting with a '#'
+     */
+    private static boolean isComment(Cell cell) {
+        CellType cellType = cell.getCellType();
+        if (cellType == CellType.FORMULA) {
+            cellType = cell.getCachedFormulaResultType();
+        }
+        return cellType == CellType.STRING && cell.getStringCellValue().trim().startsWith("#");
+    }
+}
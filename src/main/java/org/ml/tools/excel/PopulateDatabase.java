@@ -8,12 +8,15 @@ package org.ml.tools.excel;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.ml.options.OptionData;
 import org.ml.options.Options;
 import org.ml.tools.ConnectionData;
+import org.ml.tools.FileType;
 import org.ml.tools.PropertyManager;
 import org.ml.tools.logging.LoggerFactory;
 import org.apache.poi.ss.usermodel.Sheet;
@@ -44,11 +47,17 @@ public class PopulateDatabase {
         try {
 
             Options options = new Options(args);
-            options.setDefault(3, 4);
+            options.setDefault(3, 4).setDefault(Options.Prefix.DASH);
+            options.getSet().addOption(OptionData.Type.SIMPLE, "bulk", Options.Multiplicity.ZERO_OR_ONCE);
+            options.getSet().getOption("bulk").setHelpText("Use the bulk loader of the database (H2 CSVREAD) instead of row inserts");
+            options.getSet().addOption(OptionData.Type.VALUE, "workers", Options.Multiplicity.ZERO_OR_ONCE);
+            options.getSet().getOption("workers").setHelpText("Load XLSX files in a pipeline with this number of conversion threads instead of loading the workbook first");
+            options.getSet().addOption(OptionData.Type.SIMPLE, "resume", Options.Multiplicity.ZERO_OR_ONCE);
+            options.getSet().getOption("resume").setHelpText("Store checkpoints while importing and resume an interrupted import of the same file");
             options.getSet().setDataText(0, "XML Config File");
             options.getSet().setHelpText(0, "The XML config file with the details for the dtaabase connection");
             options.getSet().setDataText(1, "Excel file");
-            options.getSet().setHelpText(1, "The Excel file to read the data from");
+            options.getSet().setHelpText(1, "The Excel or CSV file to read the data from");
             options.getSet().setDataText(2, "Table Name");
             options.getSet().setHelpText(2, "The name of the table to create");
             options.getSet().setDataText(3, "Sheet Name");
@@ -63,11 +72,18 @@ public class PopulateDatabase {
 
                 Path excelFile = Paths.get(options.getSet().getData(1));
                 String tableName = options.getSet().getData(2);
+                boolean bulkLoad = options.getSet().getOption("bulk").isSet();
+                int workers = 0;
+                if (options.getSet().getOption("workers").isSet()) {
+                    workers = Integer.parseInt(options.getSet().getOption("workers").getResultValue(0));
+                }
+
+                boolean resume = options.getSet().getOption("resume").isSet();
 
                 if (options.getSet().getDataCount() == 4) {
-                    client.execute(new PropertyManager(doc.getRootElement()), excelFile, tableName, options.getSet().getData(3));
+                    client.execute(new PropertyManager(doc.getRootElement()), excelFile, tableName, options.getSet().getData(3), bulkLoad, workers, resume);
                 } else {
-                    client.execute(new PropertyManager(doc.getRootElement()), excelFile, tableName, null);
+                    client.execute(new PropertyManager(doc.getRootElement()), excelFile, tableName, null, bulkLoad, workers, resume);
                 }
 
             } else {
@@ -91,7 +107,72 @@ public class PopulateDatabase {
      * @throws Exception
      */
     public void execute(PropertyManager propertyManager, Path excelFile, String tableName, String sheetName) throws Exception {
+        execute(propertyManager, excelFile, tableName, sheetName, false);
+    }
+
+    /**
+     *
+     * @param propertyManager
+     * @param excelFile
+     * @param tableName
+     * @param sheetName
+     * @param bulkLoad use the bulk loader of the database instead of row
+     * inserts
+     * @throws Exception
+     */
+    public void execute(PropertyManager propertyManager, Path excelFile, String tableName, String sheetName, boolean bulkLoad) throws Exception {
+        execute(propertyManager, excelFile, tableName, sheetName, bulkLoad, 0);
+    }
+
+    /**
+     *
+     * @param propertyManager
+     * @param excelFile
+     * @param tableName
+     * @param sheetName
+     * @param bulkLoad use the bulk loader of the database instead of row
+     * inserts
+     * @param workers if &gt; 0, XLSX files are streamed through a pipeline
+     * with this number of conversion threads (unless bulkLoad is set)
+     * @throws Exception
+     */
+    public void execute(PropertyManager propertyManager, Path excelFile, String tableName, String sheetName, boolean bulkLoad, int workers) throws Exception {
+        execute(propertyManager, excelFile, tableName, sheetName, bulkLoad, workers, false);
+    }
+
+    /**
+     *
+     * @param propertyManager
+     * @param excelFile
+     * @param tableName
+     * @param sheetName
+     * @param bulkLoad use the bulk loader of the database instead of row
+     * inserts
+     * @param workers if &gt; 0, XLSX files are streamed through a pipeline
+     * with this number of conversion threads (unless bulkLoad or resume is
+     * set); CSV files are always streamed through a pipeline, with at least
+     * one conversion thread
+     * @param resume store checkpoints during the import and resume an earlier
+     * import of the same file which did not complete; only used for the
+     * sequential row inserts
+     * @throws Exception
+     */
+    public void execute(PropertyManager propertyManager, Path excelFile, String tableName, String sheetName, boolean bulkLoad, int workers, boolean resume) throws Exception {
         ConnectionData connectionData = new ConnectionData(propertyManager);
+        if (excelFile.getFileName().toString().endsWith(FileType.CSV.getExtension())) {
+            if (bulkLoad || resume) {
+                LOGGER.log(Level.WARNING, "Bulk loading and resuming are not supported for CSV files, loading {0} in a pipeline", excelFile);
+            }
+            new ExcelDatabaseHandler(connectionData).pipelineExcelSheetToDatabase(excelFile, null, tableName, Math.max(1, workers));
+            return;
+        }
+        if (workers > 0 && !bulkLoad && !resume) {
+            if (excelFile.getFileName().toString().endsWith(FileType.XLSX.getExtension())) {
+                new ExcelDatabaseHandler(connectionData).pipelineExcelSheetToDatabase(excelFile, sheetName, tableName, workers);
+                return;
+            }
+            LOGGER.log(Level.WARNING, "Pipelined loading is only supported for XLSX files, loading {0} sequentially", excelFile);
+        }
         Workbook workbook = ExcelTools.getWorkbook(excelFile);
         Sheet sheet;
         if (sheetName == null) {
@@ -100,6 +181,14 @@ public class PopulateDatabase {
             sheet = workbook.getSheet(sheetName);
         }
         ExcelDatabaseHandler handler = new ExcelDatabaseHandler(connectionData);
-        handler.saveExcelSheetToDatabase(sheet, tableName);
+        if (bulkLoad) {
+            handler.bulkLoadExcelSheetToDatabase(sheet, tableName);
+        } else if (resume) {
+            String checkpointId = excelFile.toAbsolutePath() + "|" + sheet.getSheetName() + "|" + Files.size(excelFile) + "|" + Files.getLastModifiedTime(excelFile).toMillis();
+            handler.saveExcelSheetToDatabase(sheet, tableName, ExcelDatabaseHandler.DEFAULT_VARCHAR_LENGTH,
+                    ExcelDatabaseHandler.DEFAULT_BATCH_SIZE, ExcelDatabaseHandler.DEFAULT_COMMIT_INTERVAL, checkpointId);
+        } else {
+            handler.saveExcelSheetToDatabase(sheet, tableName);
+        }
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * Read access to the cells of a row before they are converted into the
+ * strings returned by the sheet readers, see {@link RowFilter}. Columns are
+ * addressed by their index in the row handed to the filter; cells beyond the
+ * end of the row are blank.
+ * <p>
+ * CSV fields have no type, they are STRING cells unless they are empty.
+ * Formula cells are represented by their cached result.
+ *
+ * @author Dr. Matthias Laux
+ */
+public interface RawRow {
+
+    /**
+     * @return the number of columns of the row
+     */
+    int size();
+
+    /**
+     * @param column
+     * @return one of CellType.NUMERIC, CellType.STRING, CellType.BOOLEAN,
+     * CellType.ERROR or CellType.BLANK
+     */
+    CellType getCellType(int column);
+
+    /**
+     * @param column
+     * @return the value of a NUMERIC cell or of a STRING cell which parses as
+     * a number, NaN for all other cells
+     */
+    double getNumericValue(int column);
+
+    /**
+     * @param column
+     * @return the (untrimmed) text of a STRING cell, an empty string for all
+     * other cells
+     */
+    String getStringValue(int column);
+
+    /**
+     * @param column
+     * @return the value of a BOOLEAN cell or of a STRING cell containing
+     * "true", false for all other cells
+     */
+    boolean getBooleanValue(int column);
+}
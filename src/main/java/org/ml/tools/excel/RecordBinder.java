@@ -0,0 +1,306 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates instances of a record type from sheet rows. The record components
+ * are mapped to the columns of a header row by name once; header texts and
+ * component names are compared ignoring case and any characters other than
+ * letters and digits, e. g. the header "Unit Price" matches a component
+ * <code>unitPrice</code>.
+ * <p>
+ * For each component, a method handle extracting the value of its column
+ * from a row is bound to the canonical constructor of the record, such that a
+ * row is mapped by a single method handle invocation without boxing of
+ * primitive values.
+ * <p>
+ * Supported component types are the primitives int, long, double and boolean
+ * (blank cells become 0 / false), their wrapper types (blank cells become
+ * null), String (blank cells become an empty string), LocalDate and
+ * LocalDateTime (blank cells become null).
+ *
+ * @param <R>
+ * @author Dr. Matthias Laux
+ */
+final class RecordBinder<R extends Record> {
+
+    private static final Map<Class<?>, MethodHandle> EXTRACTORS = new HashMap<>();
+    private final Class<R> type;
+    private final MethodHandle binder;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            EXTRACTORS.put(int.class, lookup.findStatic(RecordBinder.class, "getInt", MethodType.methodType(int.class, Row.class, int.class)));
+            EXTRACTORS.put(long.class, lookup.findStatic(RecordBinder.class, "getLong", MethodType.methodType(long.class, Row.class, int.class)));
+            EXTRACTORS.put(double.class, lookup.findStatic(RecordBinder.class, "getDouble", MethodType.methodType(double.class, Row.class, int.class)));
+            EXTRACTORS.put(boolean.class, lookup.findStatic(RecordBinder.class, "getBoolean", MethodType.methodType(boolean.class, Row.class, int.class)));
+            EXTRACTORS.put(Integer.class, lookup.findStatic(RecordBinder.class, "getIntegerObject", MethodType.methodType(Integer.class, Row.class, int.class)));
+            EXTRACTORS.put(Long.class, lookup.findStatic(RecordBinder.class, "getLongObject", MethodType.methodType(Long.class, Row.class, int.class)));
+            EXTRACTORS.put(Double.class, lookup.findStatic(RecordBinder.class, "getDoubleObject", MethodType.methodType(Double.class, Row.class, int.class)));
+            EXTRACTORS.put(Boolean.class, lookup.findStatic(RecordBinder.class, "getBooleanObject", MethodType.methodType(Boolean.class, Row.class, int.class)));
+            EXTRACTORS.put(String.class, lookup.findStatic(RecordBinder.class, "getString", MethodType.methodType(String.class, Row.class, int.class)));
+            EXTRACTORS.put(LocalDate.class, lookup.findStatic(RecordBinder.class, "getLocalDate", MethodType.methodType(LocalDate.class, Row.class, int.class)));
+            EXTRACTORS.put(LocalDateTime.class, lookup.findStatic(RecordBinder.class, "getLocalDateTime", MethodType.methodType(LocalDateTime.class, Row.class, int.class)));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    /**
+     *
+     * @param type
+     * @param headerRow the row with the column names
+     */
+    RecordBinder(Class<R> type, Row headerRow) {
+        if (type == null) {
+            throw new NullPointerException("type may not be null");
+        }
+        if (headerRow == null) {
+            throw new NullPointerException("headerRow may not be null");
+        }
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException("Not a record type: " + type.getName());
+        }
+        this.type = type;
+
+        //.... Column index for each normalized header text
+        Map<String, Integer> columns = new HashMap<>();
+        for (Cell cell : headerRow) {
+            String name = normalize(new ExcelCellData(cell).getProcessedData());
+            if (!name.isEmpty()) {
+                columns.putIfAbsent(name, cell.getColumnIndex());
+            }
+        }
+
+        //.... One extractor per component, bound to its column
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] componentTypes = new Class<?>[components.length];
+        MethodHandle[] extractors = new MethodHandle[components.length];
+        for (int i = 0; i < components.length; i++) {
+            componentTypes[i] = components[i].getType();
+            MethodHandle extractor = EXTRACTORS.get(componentTypes[i]);
+            if (extractor == null) {
+                throw new UnsupportedOperationException("Unsupported type " + componentTypes[i].getName() + " of record component " + components[i].getName());
+            }
+            Integer column = columns.get(normalize(components[i].getName()));
+            if (column == null) {
+                throw new IllegalArgumentException("Header row does not contain a column for record component " + components[i].getName());
+            }
+            extractors[i] = MethodHandles.insertArguments(extractor, 1, column);
+        }
+
+        //.... (Row, Row, ..., Row) -> R, then with all arguments merged into one: (Row) -> R
+        try {
+            Constructor<R> constructor = type.getDeclaredConstructor(componentTypes);
+            constructor.setAccessible(true);
+            MethodHandle handle = MethodHandles.filterArguments(MethodHandles.lookup().unreflectConstructor(constructor), 0, extractors);
+            handle = MethodHandles.permuteArguments(handle, MethodType.methodType(type, Row.class), new int[components.length]);
+            binder = handle.asType(MethodType.methodType(Object.class, Row.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException ex) {
+            throw new IllegalArgumentException("Can not access the canonical constructor of " + type.getName(), ex);
+        }
+    }
+
+    /**
+     * @param row
+     * @return
+     */
+    R bind(Row row) {
+        if (row == null) {
+            throw new NullPointerException("row may not be null");
+        }
+        try {
+            return type.cast((Object) binder.invokeExact(row));
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException("Could not create " + type.getName() + " from row " + row.getRowNum(), ex);
+        }
+    }
+
+    /**
+     * @param row
+     * @return true if the row has no cells with data
+     */
+    static boolean isEmpty(Row row) {
+        for (Cell cell : row) {
+            if (!isBlank(cell)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param name
+     * @return
+     */
+    private static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param cell
+     * @return the type of the cell value, BLANK for missing cells and blank
+     * strings
+     */
+    private static CellType getCellType(Cell cell) {
+        if (cell == null) {
+            return CellType.BLANK;
+        }
+        CellType cellType = cell.getCellType();
+        if (cellType == CellType.FORMULA) {
+            cellType = cell.getCachedFormulaResultType();
+        }
+        if (cellType == CellType.STRING && cell.getStringCellValue().trim().isEmpty()) {
+            return CellType.BLANK;
+        }
+        return cellType;
+    }
+
+    /**
+     * @param cell
+     * @return
+     */
+    private static boolean isBlank(Cell cell) {
+        return getCellType(cell) == CellType.BLANK;
+    }
+
+    //.... The extractors, see EXTRACTORS
+    private static double getDouble(Row row, int column) {
+        Cell cell = row.getCell(column);
+        switch (getCellType(cell)) {
+            case NUMERIC:
+                return cell.getNumericCellValue();
+            case STRING:
+                try {
+                    return Double.parseDouble(cell.getStringCellValue().trim());
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Can not extract a number from row " + row.getRowNum() + ", column " + column + ": " + cell.getStringCellValue());
+                }
+            case BOOLEAN:
+                return cell.getBooleanCellValue() ? 1.0d : 0.0d;
+            case BLANK:
+                return 0.0d;
+            default:
+                throw new UnsupportedOperationException("Unsupported POI cell type in row " + row.getRowNum() + ", column " + column + ": " + getCellType(cell));
+        }
+    }
+
+    private static long getLong(Row row, int column) {
+        Cell cell = row.getCell(column);
+        if (getCellType(cell) == CellType.STRING) {
+            String value = cell.getStringCellValue().trim();
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException ex) {
+                return (long) getDouble(row, column);
+            }
+        }
+        return (long) getDouble(row, column);
+    }
+
+    private static int getInt(Row row, int column) {
+        return (int) getLong(row, column);
+    }
+
+    private static boolean getBoolean(Row row, int column) {
+        Cell cell = row.getCell(column);
+        switch (getCellType(cell)) {
+            case BOOLEAN:
+                return cell.getBooleanCellValue();
+            case STRING:
+                return Boolean.parseBoolean(cell.getStringCellValue().trim());
+            case NUMERIC:
+                return cell.getNumericCellValue() != 0.0d;
+            case BLANK:
+                return false;
+            default:
+                throw new UnsupportedOperationException("Unsupported POI cell type in row " + row.getRowNum() + ", column " + column + ": " + getCellType(cell));
+        }
+    }
+
+    private static Integer getIntegerObject(Row row, int column) {
+        return isBlank(row.getCell(column)) ? null : getInt(row, column);
+    }
+
+    private static Long getLongObject(Row row, int column) {
+        return isBlank(row.getCell(column)) ? null : getLong(row, column);
+    }
+
+    private static Double getDoubleObject(Row row, int column) {
+        return isBlank(row.getCell(column)) ? null : getDouble(row, column);
+    }
+
+    private static Boolean getBooleanObject(Row row, int column) {
+        return isBlank(row.getCell(column)) ? null : getBoolean(row, column);
+    }
+
+    private static String getString(Row row, int column) {
+        Cell cell = row.getCell(column);
+        return cell == null ? "" : new ExcelCellData(cell).getProcessedData().trim();
+    }
+
+    private static LocalDateTime getLocalDateTime(Row row, int column) {
+        Cell cell = row.getCell(column);
+        switch (getCellType(cell)) {
+            case NUMERIC:
+                return cell.getLocalDateTimeCellValue();
+            case STRING:
+                String value = cell.getStringCellValue().trim();
+                return value.length() > 10 ? LocalDateTime.parse(value) : LocalDate.parse(value).atStartOfDay();
+            case BLANK:
+                return null;
+            default:
+                throw new UnsupportedOperationException("Unsupported POI cell type in row " + row.getRowNum() + ", column " + column + ": " + getCellType(cell));
+        }
+    }
+
+    private static LocalDate getLocalDate(Row row, int column) {
+        LocalDateTime value = getLocalDateTime(row, column);
+        return value == null ? null : value.toLocalDate();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash table from 64 bit key hashes to a 64 bit row hash
+ * and a row index, held in primitive arrays (about 21 bytes per slot, at
+ * most half of the slots are used). Each entry has a flag to mark it as
+ * matched.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class RowHashIndex {
+
+    private static final int MIN_CAPACITY = 16;
+    private long[] keyHashes;
+    private long[] rowHashes;
+    private int[] rowIndexes;
+    private boolean[] matched;
+    private int size = 0;
+
+    /**
+     *
+     */
+    RowHashIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Add an entry
+     *
+     * @param keyHash
+     * @param rowHash
+     * @param rowIndex the row index, must be &gt;= 0
+     * @return false if an entry with the key hash exists already
+     */
+    boolean add(long keyHash, long rowHash, int rowIndex) {
+        if (rowIndex < 0) {
+            throw new IllegalArgumentException("rowIndex must be >= 0");
+        }
+        if (2 * (size + 1) > keyHashes.length) {
+            resize();
+        }
+        int slot = slot(keyHash);
+        while (rowIndexes[slot] >= 0) {
+            if (keyHashes[slot] == keyHash) {
+                return false;
+            }
+            slot = (slot + 1) & (keyHashes.length - 1);
+        }
+        keyHashes[slot] = keyHash;
+        rowHashes[slot] = rowHash;
+        rowIndexes[slot] = rowIndex;
+        size++;
+        return true;
+    }
+
+    /**
+     *
+     * @param keyHash
+     * @return the slot of the entry or -1 if there is none
+     */
+    int find(long keyHash) {
+        int slot = slot(keyHash);
+        while (rowIndexes[slot] >= 0) {
+            if (keyHashes[slot] == keyHash) {
+                return slot;
+            }
+            slot = (slot + 1) & (keyHashes.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     *
+     * @param slot
+     * @return
+     */
+    long getRowHash(int slot) {
+        return rowHashes[slot];
+    }
+
+    /**
+     *
+     * @param slot
+     * @return
+     */
+    int getRowIndex(int slot) {
+        return rowIndexes[slot];
+    }
+
+    /**
+     *
+     * @param slot
+     * @return
+     */
+    boolean isMatched(int slot) {
+        return matched[slot];
+    }
+
+    /**
+     *
+     * @param slot
+     */
+    void setMatched(int slot) {
+        matched[slot] = true;
+    }
+
+    /**
+     *
+     * @return
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Spread the bits of the hash (MurmurHash3 finalizer) before taking the
+     * lower bits as slot
+     *
+     * @param keyHash
+     * @return
+     */
+    private int slot(long keyHash) {
+        long h = keyHash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h & (keyHashes.length - 1);
+    }
+
+    /**
+     *
+     * @param capacity a power of 2
+     */
+    private void allocate(int capacity) {
+        keyHashes = new long[capacity];
+        rowHashes = new long[capacity];
+        rowIndexes = new int[capacity];
+        matched = new boolean[capacity];
+        Arrays.fill(rowIndexes, -1);
+    }
+
+    /**
+     * Double the capacity and rehash all entries
+     */
+    private void resize() {
+        long[] oldKeyHashes = keyHashes;
+        long[] oldRowHashes = rowHashes;
+        int[] oldRowIndexes = rowIndexes;
+        boolean[] oldMatched = matched;
+        allocate(2 * oldKeyHashes.length);
+        for (int i = 0; i < oldKeyHashes.length; i++) {
+            if (oldRowIndexes[i] >= 0) {
+                int slot = slot(oldKeyHashes[i]);
+                while (rowIndexes[slot] >= 0) {
+                    slot = (slot + 1) & (keyHashes.length - 1);
+                }
+                keyHashes[slot] = oldKeyHashes[i];
+                rowHashes[slot] = oldRowHashes[i];
+                rowIndexes[slot] = oldRowIndexes[i];
+                matched[slot] = oldMatched[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Applies a {@link SheetSelection} to the rows of a sheet reader. The reader
+ * asks for each row and cell whether it is needed, collects the raw data of
+ * the needed cells and hands them over as {@link RawCells}; only the cells of
+ * rows which pass the filter are then converted.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class RowSelector {
+
+    private final int firstRow;
+    private final int lastRow;
+    private final SheetSelection selection;
+    private final ProjectedRow projectedRow = new ProjectedRow();
+    private int[] columns;
+    private boolean[] needed;
+
+    /**
+     * The raw cells of the current row of a reader, addressed by their index
+     * in the parsed row
+     */
+    interface RawCells extends RawRow {
+
+        /**
+         * @param column
+         * @return the cell converted like
+         * {@link ExcelCellData#getProcessedData()}, trimmed
+         */
+        String getData(int column);
+    }
+
+    /**
+     * The selected columns of a row for the row filter
+     */
+    private final class ProjectedRow implements RawRow {
+
+        private RawCells cells;
+
+        @Override
+        public int size() {
+            return columns.length;
+        }
+
+        @Override
+        public CellType getCellType(int column) {
+            return cells.getCellType(columns[column]);
+        }
+
+        @Override
+        public double getNumericValue(int column) {
+            return cells.getNumericValue(columns[column]);
+        }
+
+        @Override
+        public String getStringValue(int column) {
+            return cells.getStringValue(columns[column]);
+        }
+
+        @Override
+        public boolean getBooleanValue(int column) {
+            return cells.getBooleanValue(columns[column]);
+        }
+    }
+
+    /**
+     * The cells of a row of a workbook loaded into memory
+     */
+    static final class SheetCells implements RawCells {
+
+        private final int minColNumber;
+        private final ExcelCellData cellData = new ExcelCellData();
+        private Row row;
+
+        /**
+         *
+         * @param minColNumber the sheet column of the first column
+         */
+        SheetCells(int minColNumber) {
+            this.minColNumber = minColNumber;
+        }
+
+        /**
+         * @param row
+         * @return this instance
+         */
+        SheetCells setRow(Row row) {
+            this.row = row;
+            return this;
+        }
+
+        @Override
+        public int size() {
+            return Math.max(0, row.getLastCellNum() - minColNumber);
+        }
+
+        @Override
+        public CellType getCellType(int column) {
+            Cell cell = row.getCell(minColNumber + column);
+            if (cell == null) {
+                return CellType.BLANK;
+            }
+            CellType cellType = cell.getCellType();
+            return cellType == CellType.FORMULA ? cell.getCachedFormulaResultType() : cellType;
+        }
+
+        @Override
+        public double getNumericValue(int column) {
+            switch (getCellType(column)) {
+                case NUMERIC:
+                    return row.getCell(minColNumber + column).getNumericCellValue();
+                case STRING:
+                    return parseNumber(row.getCell(minColNumber + column).getStringCellValue());
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        @Override
+        public String getStringValue(int column) {
+            return getCellType(column) == CellType.STRING ? row.getCell(minColNumber + column).getStringCellValue() : "";
+        }
+
+        @Override
+        public boolean getBooleanValue(int column) {
+            switch (getCellType(column)) {
+                case BOOLEAN:
+                    return row.getCell(minColNumber + column).getBooleanCellValue();
+                case STRING:
+                    return Boolean.parseBoolean(row.getCell(minColNumber + column).getStringCellValue().trim());
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public String getData(int column) {
+            Cell cell = row.getCell(minColNumber + column);
+            return cell == null ? "" : cellData.setCell(cell).getProcessedData().trim();
+        }
+    }
+
+    /**
+     *
+     * @param selection the selection or null for all rows and columns
+     */
+    RowSelector(SheetSelection selection) {
+        this.selection = selection;
+        if (selection == null) {
+            firstRow = 0;
+            lastRow = SheetSelection.LAST_ROW;
+        } else {
+            firstRow = selection.getFirstRow();
+            lastRow = selection.getLastRow();
+            if (selection.getColumns() != null) {
+                setColumns(selection.getColumns());
+            }
+        }
+    }
+
+    /**
+     * @return the first row index of the selection
+     */
+    int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * @return the last row index of the selection
+     */
+    int getLastRow() {
+        return lastRow;
+    }
+
+    /**
+     * @param rowIndex
+     * @return true if the row is before the selected rows and can be skipped
+     */
+    boolean isBeforeRange(int rowIndex) {
+        return rowIndex < firstRow;
+    }
+
+    /**
+     * @param rowIndex
+     * @return true if the row is behind the selected rows, i. e. reading can
+     * stop
+     */
+    boolean isAfterRange(int rowIndex) {
+        return rowIndex > lastRow;
+    }
+
+    /**
+     * @param column the index in the parsed row
+     * @return true if the raw data of the cell is needed; this may change
+     * after the header row has been selected
+     */
+    boolean isNeeded(int column) {
+        return needed == null || (column < needed.length && needed[column]);
+    }
+
+    /**
+     * Apply the selection to a row in the selected row range
+     *
+     * @param rowIndex
+     * @param cells the raw cells; at least the needed cells must be present
+     * @return the row data or null if the row is skipped
+     */
+    List<String> select(int rowIndex, RawCells cells) {
+        RowFilter rowFilter = selection == null ? null : selection.getRowFilter();
+
+        //.... All columns, or the header row of a selection by name
+        if (columns == null) {
+            boolean byName = selection != null && selection.getColumnNames() != null;
+            if (!byName && rowFilter != null && !rowFilter.accept(rowIndex, cells)) {
+                return null;
+            }
+            List<String> rowData = new ArrayList<>(cells.size());
+            for (int c = 0; c < cells.size(); c++) {
+                rowData.add(cells.getData(c));
+            }
+            rowData = SheetReader.finishRow(rowData);
+            if (rowData == null || !byName) {
+                return rowData;
+            }
+            setColumns(selection.resolveColumns(rowData));
+
+            //.... The header row is always returned, the filter only applies to the rows after it
+            List<String> header = new ArrayList<>(columns.length);
+            for (int column : columns) {
+                header.add(column < rowData.size() ? rowData.get(column) : "");
+            }
+            return header;
+        } else if (isComment(cells)) {
+            return null;
+        }
+
+        //.... Selected columns
+        projectedRow.cells = cells;
+        if (rowFilter != null && !rowFilter.accept(rowIndex, projectedRow)) {
+            return null;
+        }
+        List<String> rowData = new ArrayList<>(columns.length);
+        boolean empty = true;
+        for (int column : columns) {
+            String data = cells.getData(column);
+            rowData.add(data);
+            empty &= data.isEmpty();
+        }
+        return empty ? null : rowData;
+    }
+
+    /**
+     * Parse the text of a STRING cell as a number
+     *
+     * @param value
+     * @return the number or NaN
+     */
+    static double parseNumber(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     *
+     * @param columns
+     */
+    private void setColumns(int[] columns) {
+        this.columns = columns;
+        int max = 0;
+        for (int column : columns) {
+            max = Math.max(max, column);
+        }
+        needed = new boolean[max + 1];
+        needed[0] = true;      // For the recognition of comment rows
+        for (int column : columns) {
+            needed[column] = true;
+        }
+    }
+
+    /**
+     * Same rule as {@link SheetReader#finishRow(List)} on the raw first cell
+     *
+     * @param cells
+     * @return
+     */
+    private static boolean isComment(RawCells cells) {
+        if (cells.getCellType(0) != CellType.STRING) {
+            return false;
+        }
+        String value = cells.getStringValue(0);
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return value.charAt(i) == '#';
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The differences between two versions of a sheet as collected from a
+ * {@link ExcelTools#diff(java.nio.file.Path, java.nio.file.Path, List)}
+ *
+ * @author Dr. Matthias Laux
+ */
+public final class SheetDiff implements DiffConsumer {
+
+    private final Map<Integer, List<String>> added = new LinkedHashMap<>();
+    private final Map<Integer, List<String>> removed = new LinkedHashMap<>();
+    private final List<Change> changed = new ArrayList<>();
+
+    /**
+     * A changed row
+     */
+    public static final class Change {
+
+        private final int oldRowIndex;
+        private final List<String> oldRowData;
+        private final int newRowIndex;
+        private final List<String> newRowData;
+
+        /**
+         *
+         * @param oldRowIndex
+         * @param oldRowData
+         * @param newRowIndex
+         * @param newRowData
+         */
+        private Change(int oldRowIndex, List<String> oldRowData, int newRowIndex, List<String> newRowData) {
+            this.oldRowIndex = oldRowIndex;
+            this.oldRowData = oldRowData;
+            this.newRowIndex = newRowIndex;
+            this.newRowData = newRowData;
+        }
+
+        /**
+         * @return the 0-based index of the row in the old sheet
+         */
+        public int getOldRowIndex() {
+            return oldRowIndex;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public List<String> getOldRowData() {
+            return oldRowData;
+        }
+
+        /**
+         * @return the 0-based index of the row in the new sheet
+         */
+        public int getNewRowIndex() {
+            return newRowIndex;
+        }
+
+        /**
+         *
+         * @return
+         */
+        public List<String> getNewRowData() {
+            return newRowData;
+        }
+
+        /**
+         *
+         * @return
+         */
+        @Override
+        public String toString() {
+            return "Change{" + oldRowIndex + ": " + oldRowData + " -> " + newRowIndex + ": " + newRowData + "}";
+        }
+    }
+
+    /**
+     *
+     * @param rowIndex
+     * @param rowData
+     */
+    @Override
+    public void added(int rowIndex, List<String> rowData) {
+        added.put(rowIndex, rowData);
+    }
+
+    /**
+     *
+     * @param rowIndex
+     * @param rowData
+     */
+    @Override
+    public void removed(int rowIndex, List<String> rowData) {
+        removed.put(rowIndex, rowData);
+    }
+
+    /**
+     *
+     * @param oldRowIndex
+     * @param oldRowData
+     * @param newRowIndex
+     * @param newRowData
+     */
+    @Override
+    public void changed(int oldRowIndex, List<String> oldRowData, int newRowIndex, List<String> newRowData) {
+        changed.add(new Change(oldRowIndex, oldRowData, newRowIndex, newRowData));
+    }
+
+    /**
+     * @return the added rows keyed by their 0-based index in the new sheet
+     */
+    public Map<Integer, List<String>> getAdded() {
+        return Collections.unmodifiableMap(added);
+    }
+
+    /**
+     * @return the removed rows keyed by their 0-based index in the old sheet
+     */
+    public Map<Integer, List<String>> getRemoved() {
+        return Collections.unmodifiableMap(removed);
+    }
+
+    /**
+     *
+     * @return
+     */
+    public List<Change> getChanged() {
+        return Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * @return true if the sheets contain the same rows
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return "SheetDiff{" + added.size() + " added, " + removed.size() + " removed, " + changed.size() + " changed}";
+    }
+}
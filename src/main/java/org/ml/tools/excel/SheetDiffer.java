@@ -0,0 +1,281 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two versions of a sheet row by row, with the rows matched by the
+ * values of key columns. The sheets are streamed (see
+ * {@link ExcelTools#streamSheet(Path, String, RowConsumer)}), the first row
+ * is the header row:
+ * <ol>
+ * <li>The old sheet is read and a 64 bit hash of the key values and of all
+ * compared values is stored for each row in a {@link RowHashIndex}</li>
+ * <li>The new sheet is read; rows with unknown keys are added rows, rows with
+ * a different hash of the compared values are changed rows (only these are
+ * held in memory until the old versions are found)</li>
+ * <li>If required, the old sheet is read again for the removed rows and the
+ * old versions of the changed rows</li>
+ * </ol>
+ * The columns are matched by their header names, ignoring case; only the
+ * columns present in both sheets are compared. Rows are considered equal if
+ * their hashes are equal, the probability of a collision is negligible for
+ * sheets of realistic size.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class SheetDiffer {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char VALUE_SEPARATOR = '\u001f';
+    private final Path oldFile;
+    private final Path newFile;
+    private final String sheetName;
+    private final List<String> keyColumns;
+    private int[] oldKeyColumns;
+    private int[] newKeyColumns;
+    private int[] oldCompareColumns;
+    private int[] newCompareColumns;
+
+    /**
+     * The new version of a changed row
+     */
+    private static final class NewRow {
+
+        private final int rowIndex;
+        private final List<String> rowData;
+
+        private NewRow(int rowIndex, List<String> rowData) {
+            this.rowIndex = rowIndex;
+            this.rowData = rowData;
+        }
+    }
+
+    /**
+     *
+     * @param oldFile
+     * @param newFile
+     * @param sheetName the name of the sheet or null for the first sheet
+     * @param keyColumns the header names of the key columns
+     */
+    SheetDiffer(Path oldFile, Path newFile, String sheetName, List<String> keyColumns) {
+        if (oldFile == null) {
+            throw new NullPointerException("oldFile may not be null");
+        }
+        if (newFile == null) {
+            throw new NullPointerException("newFile may not be null");
+        }
+        if (keyColumns == null) {
+            throw new NullPointerException("keyColumns may not be null");
+        }
+        if (keyColumns.isEmpty()) {
+            throw new IllegalArgumentException("keyColumns may not be empty");
+        }
+        this.oldFile = oldFile;
+        this.newFile = newFile;
+        this.sheetName = sheetName;
+        this.keyColumns = keyColumns;
+    }
+
+    /**
+     *
+     * @param consumer
+     * @throws IOException
+     */
+    void run(DiffConsumer consumer) throws IOException {
+        if (consumer == null) {
+            throw new NullPointerException("consumer may not be null");
+        }
+        try {
+            RowHashIndex index = new RowHashIndex();
+            Map<Integer, NewRow> changedRows = new HashMap<>();
+            int matchedCount = 0;
+
+            try (SheetReader newReader = ExcelTools.openSheetReader(newFile, sheetName)) {
+                List<String> newHeader = newReader.hasNext() ? newReader.next() : new ArrayList<>();
+                newKeyColumns = getColumns(newHeader, keyColumns, newFile);
+
+                //.... Pass 1: index the old sheet
+                try (SheetReader reader = ExcelTools.openSheetReader(oldFile, sheetName)) {
+                    List<String> oldHeader = reader.hasNext() ? reader.next() : new ArrayList<>();
+                    oldKeyColumns = getColumns(oldHeader, keyColumns, oldFile);
+                    setCompareColumns(oldHeader, newHeader);
+                    while (reader.hasNext()) {
+                        List<String> rowData = reader.next();
+                        if (!index.add(hash(rowData, oldKeyColumns), hash(rowData, oldCompareColumns), reader.getRowIndex())) {
+                            throw new IllegalArgumentException("Duplicate key " + getValues(rowData, oldKeyColumns) + " in row " + (reader.getRowIndex() + 1) + " of " + oldFile);
+                        }
+                    }
+                }
+
+                //.... Pass 2: match the new sheet
+                while (newReader.hasNext()) {
+                    List<String> rowData = newReader.next();
+                    int slot = index.find(hash(rowData, newKeyColumns));
+                    if (slot < 0) {
+                        consumer.added(newReader.getRowIndex(), rowData);
+                    } else if (index.isMatched(slot)) {
+                        throw new IllegalArgumentException("Duplicate key " + getValues(rowData, newKeyColumns) + " in row " + (newReader.getRowIndex() + 1) + " of " + newFile);
+                    } else {
+                        index.setMatched(slot);
+                        matchedCount++;
+                        if (index.getRowHash(slot) != hash(rowData, newCompareColumns)) {
+                            changedRows.put(index.getRowIndex(slot), new NewRow(newReader.getRowIndex(), rowData));
+                        }
+                    }
+                }
+            }
+
+            //.... Pass 3: removed rows and old versions of changed rows
+            if (matchedCount == index.size() && changedRows.isEmpty()) {
+                return;
+            }
+            try (SheetReader reader = ExcelTools.openSheetReader(oldFile, sheetName)) {
+                if (reader.hasNext()) {
+                    reader.next();
+                }
+                while (reader.hasNext()) {
+                    List<String> rowData = reader.next();
+                    if (!index.isMatched(index.find(hash(rowData, oldKeyColumns)))) {
+                        consumer.removed(reader.getRowIndex(), rowData);
+                    } else {
+                        NewRow newRow = changedRows.get(reader.getRowIndex());
+                        if (newRow != null) {
+                            consumer.changed(reader.getRowIndex(), rowData, newRow.rowIndex, newRow.rowData);
+                        }
+                    }
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Determine the column indexes of the names given in the header
+     *
+     * @param header
+     * @param names
+     * @param file
+     * @return
+     */
+    private static int[] getColumns(List<String> header, List<String> names, Path file) {
+        int[] columns = new int[names.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = indexOf(header, names.get(i));
+            if (columns[i] < 0) {
+                throw new IllegalArgumentException("Key column " + names.get(i) + " not found in the header of " + file);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * The columns present in both headers, in the order of the old header
+     *
+     * @param oldHeader
+     * @param newHeader
+     */
+    private void setCompareColumns(List<String> oldHeader, List<String> newHeader) {
+        List<int[]> pairs = new ArrayList<>();
+        for (int c = 0; c < oldHeader.size(); c++) {
+            if (!oldHeader.get(c).isEmpty() && indexOf(oldHeader, oldHeader.get(c)) == c) {
+                int n = indexOf(newHeader, oldHeader.get(c));
+                if (n >= 0) {
+                    pairs.add(new int[]{c, n});
+                }
+            }
+        }
+        oldCompareColumns = new int[pairs.size()];
+        newCompareColumns = new int[pairs.size()];
+        for (int i = 0; i < pairs.size(); i++) {
+            oldCompareColumns[i] = pairs.get(i)[0];
+            newCompareColumns[i] = pairs.get(i)[1];
+        }
+    }
+
+    /**
+     *
+     * @param header
+     * @param name
+     * @return the index of the first column with the name, ignoring case, or
+     * -1
+     */
+    private static int indexOf(List<String> header, String name) {
+        String normalizedName = name.trim().toUpperCase(Locale.ROOT);
+        for (int c = 0; c < header.size(); c++) {
+            if (header.get(c).toUpperCase(Locale.ROOT).equals(normalizedName)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * FNV-1a hash of the values in the columns given; missing trailing values
+     * are empty
+     *
+     * @param rowData
+     * @param columns
+     * @return
+     */
+    private static long hash(List<String> rowData, int[] columns) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int column : columns) {
+            if (column < rowData.size()) {
+                String value = rowData.get(column);
+                for (int i = 0; i < value.length(); i++) {
+                    hash ^= value.charAt(i);
+                    hash *= FNV_PRIME;
+                }
+            }
+            hash ^= VALUE_SEPARATOR;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     *
+     * @param rowData
+     * @param columns
+     * @return
+     */
+    private static List<String> getValues(List<String> rowData, int[] columns) {
+        List<String> values = new ArrayList<>(columns.length);
+        for (int column : columns) {
+            values.add(column < rowData.size() ? rowData.get(column) : "");
+        }
+        return values;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import org.ml.tools.logging.LoggerFactory;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the data rows of an XLSX or CSV sheet into an existing table with three
+ * overlapping stages connected by bounded queues: a streaming sheet reader,
+ * a number of workers converting the parsed strings to the column types and
+ * a JDBC writer inserting the rows in batches. The queues hold chunks of rows
+ * and block when full, such that a slow stage throttles the stages before it.
+ * Note that the rows are not necessarily inserted in sheet order.
+ * <p>
+ * The writer runs in the calling thread and uses the connection given; the
+ * transaction handling is left to the caller.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class SheetLoadPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SheetLoadPipeline.class.getName());
+    private static final int CHUNK_SIZE = 1000;
+    private static final List<List<String>> END_OF_ROWS = new ArrayList<>();
+    private static final List<Object[]> END_OF_VALUES = new ArrayList<>();
+    private final Path path;
+    private final String sheetName;
+    private final ColumnTypeInference inference;
+    private final int columnCount;
+    private final int workers;
+    private final BlockingQueue<List<List<String>>> rows;
+    private final BlockingQueue<List<Object[]>> values;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder convertNanos = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private int rowCount = 0;
+
+    /**
+     *
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet
+     * @param inference the column types
+     * @param columnCount
+     * @param workers the number of conversion workers
+     */
+    SheetLoadPipeline(Path path, String sheetName, ColumnTypeInference inference, int columnCount, int workers) {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        if (inference == null) {
+            throw new NullPointerException("inference may not be null");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("workers must be > 0");
+        }
+        this.path = path;
+        this.sheetName = sheetName;
+        this.inference = inference;
+        this.columnCount = columnCount;
+        this.workers = workers;
+        rows = new ArrayBlockingQueue<>(2 * workers);
+        values = new ArrayBlockingQueue<>(2 * workers);
+    }
+
+    /**
+     * Run the pipeline; the first row of the sheet is skipped as the header
+     * row
+     *
+     * @param connection
+     * @param insertSql the insert statement with one parameter per column
+     * @param batchSize
+     * @param commitInterval
+     * @return the number of rows inserted
+     * @throws Exception
+     */
+    int run(Connection connection, String insertSql, int batchSize, int commitInterval) throws Exception {
+        long startTime = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(workers + 1);
+        try {
+            executor.execute(this::read);
+            for (int i = 0; i < workers; i++) {
+                executor.execute(this::convert);
+            }
+            try (PreparedStatement statement = connection.prepareStatement(insertSql)) {
+                write(connection, statement, batchSize, commitInterval);
+            }
+        } catch (Exception ex) {
+            failure.compareAndSet(null, ex);
+        } finally {
+            executor.shutdownNow();
+        }
+        Throwable cause = failure.get();
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        } else if (cause != null) {
+            throw (Exception) cause;
+        }
+
+        long duration = Math.max(1L, (System.nanoTime() - startTime) / 1000000L);
+        LOGGER.log(Level.INFO, "Loaded {0} rows in {1} ms ({2} rows/sec): read {3} ms, convert {4} ms in {5} workers, write {6} ms",
+                new Object[]{rowCount, duration, rowCount * 1000L / duration, readNanos.sum() / 1000000L,
+                    convertNanos.sum() / 1000000L, workers, writeNanos.sum() / 1000000L});
+        return rowCount;
+    }
+
+    /**
+     * @return the time the reader stage was busy in nanoseconds
+     */
+    long getReadNanos() {
+        return readNanos.sum();
+    }
+
+    /**
+     * @return the time the conversion workers were busy in nanoseconds,
+     * summed up over all workers
+     */
+    long getConvertNanos() {
+        return convertNanos.sum();
+    }
+
+    /**
+     * @return the time the writer stage was busy in nanoseconds
+     */
+    long getWriteNanos() {
+        return writeNanos.sum();
+    }
+
+    /**
+     * The reader stage; the end markers for the workers are posted whatever
+     * happens, such that the writer does not block forever
+     */
+    private void read() {
+        try (SheetReader reader = ExcelTools.openSheetReader(path, sheetName)) {
+            long time = System.nanoTime();
+            if (reader.hasNext()) {
+                reader.next();      // Header row
+            }
+            List<List<String>> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (failure.get() == null && reader.hasNext()) {
+                chunk.add(reader.next());
+                if (chunk.size() == CHUNK_SIZE) {
+                    readNanos.add(System.nanoTime() - time);
+                    rows.put(chunk);
+                    time = System.nanoTime();
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            readNanos.add(System.nanoTime() - time);
+            if (!chunk.isEmpty()) {
+                rows.put(chunk);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Throwable ex) {
+            failure.compareAndSet(null, ex);
+        }
+        try {
+            for (int i = 0; i < workers; i++) {
+                rows.put(END_OF_ROWS);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The conversion stage; after a failure, the chunks are only drained such
+     * that the reader does not block, and the end marker is always posted for
+     * the writer
+     */
+    private void convert() {
+        try {
+            List<List<String>> chunk;
+            while ((chunk = rows.take()) != END_OF_ROWS) {
+                if (failure.get() != null) {
+                    continue;
+                }
+                long time = System.nanoTime();
+                try {
+                    List<Object[]> converted = new ArrayList<>(chunk.size());
+                    for (List<String> rowData : chunk) {
+                        Object[] rowValues = new Object[columnCount];
+                        for (int c = 0; c < columnCount; c++) {
+                            rowValues[c] = convert(c, c < rowData.size() ? rowData.get(c) : "");
+                        }
+                        converted.add(rowValues);
+                    }
+                    convertNanos.add(System.nanoTime() - time);
+                    values.put(converted);
+                } catch (Throwable ex) {
+                    failure.compareAndSet(null, ex);
+                }
+            }
+            values.put(END_OF_VALUES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param column
+     * @param value
+     * @return the value as the Java type of the column, null for blank values
+     * except for VARCHAR columns
+     */
+    private Object convert(int column, String value) {
+        if (value.isEmpty()) {
+            return inference.getSqlType(column) == Types.VARCHAR ? "" : null;
+        }
+        switch (inference.getType(column)) {
+            case TypeInteger:
+                return (int) Double.parseDouble(value);
+            case TypeLong:
+                return (long) Double.parseDouble(value);
+            case TypeDouble:
+                return Double.parseDouble(value);
+            case TypeBoolean:
+                return Boolean.valueOf(value);
+            case TypeDate:
+                return ColumnTypeInference.parseTimestamp(value).toLocalDate();
+            case TypeTimestamp:
+                return ColumnTypeInference.parseTimestamp(value);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * The writer stage
+     *
+     * @param connection
+     * @param statement
+     * @param batchSize
+     * @param commitInterval
+     * @throws SQLException
+     * @throws InterruptedException
+     */
+    private void write(Connection connection, PreparedStatement statement, int batchSize, int commitInterval) throws SQLException, InterruptedException {
+        int ends = 0;
+        int batchCount = 0;
+        int uncommittedCount = 0;
+        while (ends < workers) {
+            List<Object[]> chunk = values.take();
+            if (chunk == END_OF_VALUES) {
+                ends++;
+                continue;
+            }
+            if (failure.get() != null) {
+                continue;
+            }
+            long time = System.nanoTime();
+            for (Object[] rowValues : chunk) {
+                for (int c = 0; c < rowValues.length; c++) {
+                    if (rowValues[c] == null) {
+                        statement.setNull(c + 1, inference.getSqlType(c));
+                    } else {
+                        statement.setObject(c + 1, rowValues[c], inference.getSqlType(c));
+                    }
+                }
+                statement.addBatch();
+                rowCount++;
+                if (++batchCount == batchSize) {
+                    statement.executeBatch();
+                    batchCount = 0;
+                }
+                if (++uncommittedCount >= commitInterval) {
+                    if (batchCount > 0) {
+                        statement.executeBatch();
+                        batchCount = 0;
+                    }
+                    connection.commit();
+                    uncommittedCount = 0;
+                }
+            }
+            writeNanos.add(System.nanoTime() - time);
+        }
+        if (failure.get() == null && batchCount > 0) {
+            long time = System.nanoTime();
+            statement.executeBatch();
+            writeNanos.add(System.nanoTime() - time);
+        }
+    }
+}
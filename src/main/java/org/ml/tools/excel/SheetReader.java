@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A streaming reader over the rows of a single sheet which returns the rows
+ * with the same semantics as
+ * {@link ExcelTools#getParsedSheet(org.apache.poi.ss.usermodel.Sheet)}. The
+ * iterator may throw an {@link java.io.UncheckedIOException} if the
+ * underlying source can not be read.
+ *
+ * @author Dr. Matthias Laux
+ */
+interface SheetReader extends Iterator<List<String>>, Closeable {
+
+    /**
+     * Restrict the rows and columns returned; must be called before the first
+     * row is read
+     *
+     * @param selection the selection or null for all rows and columns
+     */
+    void setSelection(SheetSelection selection);
+
+    /**
+     * @return the 0-based index in the sheet of the row last returned by
+     * {@link #next()}
+     */
+    int getRowIndex();
+
+    /**
+     * Apply the filtering of getParsedSheet: trailing blanks are removed,
+     * empty rows and comment rows are skipped
+     *
+     * @param rowData
+     * @return the row or null if it is to be skipped
+     */
+    static List<String> finishRow(List<String> rowData) {
+        if (rowData == null) {
+            return null;
+        }
+        int size = rowData.size();
+        while (size > 0 && rowData.get(size - 1).length() == 0) {
+            size--;
+        }
+        if (size == 0 || rowData.get(0).startsWith("#")) {
+            return null;
+        }
+        if (size < rowData.size()) {
+            rowData.subList(size, rowData.size()).clear();
+        }
+        return rowData;
+    }
+}
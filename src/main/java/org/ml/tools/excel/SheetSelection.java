@@ -0,0 +1,231 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Restricts the rows and columns returned by the sheet readers of
+ * {@link ExcelTools}; cells outside of the selection are skipped by the
+ * readers without being converted into strings.
+ * <p>
+ * Rows are given by their 0-based index in the sheet (for CSV files the index
+ * of the record), both bounds inclusive. Columns are given either by their
+ * index in the rows as returned by
+ * {@link ExcelTools#getParsedSheet(org.apache.poi.ss.usermodel.Sheet)}, i. e.
+ * relative to the lowest column used in the sheet, or by their names, which
+ * are looked up case-insensitively in the header row. The header row is the
+ * first row returned at or after the first row of the selection; it is always
+ * part of the result and not passed to the row filter.
+ * <p>
+ * With a column selection, each row has one entry per selected column in the
+ * order given, missing cells are empty strings. Rows where all selected cells
+ * are empty are skipped, comment rows are still recognized by the first
+ * column of the sheet. Without a column selection the rows are the same as
+ * those of getParsedSheet.
+ * <p>
+ * An optional {@link RowFilter} is evaluated on the raw cells of the selected
+ * columns (all columns without a column selection) before they are
+ * converted.
+ *
+ * @author Dr. Matthias Laux
+ */
+public final class SheetSelection {
+
+    public static final int LAST_ROW = Integer.MAX_VALUE;
+    private final int firstRow;
+    private final int lastRow;
+    private final int[] columns;
+    private final List<String> columnNames;
+    private RowFilter rowFilter;
+
+    /**
+     * Select a range of rows with all columns
+     *
+     * @param firstRow
+     * @param lastRow {@link #LAST_ROW} for all rows up to the end of the sheet
+     */
+    public SheetSelection(int firstRow, int lastRow) {
+        this(firstRow, lastRow, null, null);
+    }
+
+    /**
+     * Select the columns given in a range of rows
+     *
+     * @param firstRow
+     * @param lastRow {@link #LAST_ROW} for all rows up to the end of the sheet
+     * @param columns the 0-based column indexes
+     */
+    public SheetSelection(int firstRow, int lastRow, int... columns) {
+        this(firstRow, lastRow, checkColumns(columns), null);
+    }
+
+    /**
+     * Select the columns with the names given in a range of rows, the first
+     * of which is the header row
+     *
+     * @param headerRow
+     * @param lastRow {@link #LAST_ROW} for all rows up to the end of the sheet
+     * @param columnNames
+     */
+    public SheetSelection(int headerRow, int lastRow, String... columnNames) {
+        this(headerRow, lastRow, null, checkColumnNames(columnNames));
+    }
+
+    /**
+     *
+     * @param firstRow
+     * @param lastRow
+     * @param columns
+     * @param columnNames
+     */
+    private SheetSelection(int firstRow, int lastRow, int[] columns, List<String> columnNames) {
+        if (firstRow < 0) {
+            throw new IllegalArgumentException("firstRow may not be < 0");
+        }
+        if (lastRow < firstRow) {
+            throw new IllegalArgumentException("lastRow may not be < firstRow");
+        }
+        this.firstRow = firstRow;
+        this.lastRow = lastRow;
+        this.columns = columns;
+        this.columnNames = columnNames;
+    }
+
+    /**
+     * Only return rows accepted by the filter given
+     *
+     * @param rowFilter the filter or null for all rows
+     * @return this instance
+     */
+    public SheetSelection setRowFilter(RowFilter rowFilter) {
+        this.rowFilter = rowFilter;
+        return this;
+    }
+
+    /**
+     * @return
+     */
+    public RowFilter getRowFilter() {
+        return rowFilter;
+    }
+
+    /**
+     * @return
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * @return
+     */
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    /**
+     * @return the selected column indexes or null if the columns are selected
+     * by name or all columns are selected
+     */
+    public int[] getColumns() {
+        return columns == null ? null : columns.clone();
+    }
+
+    /**
+     * @return the selected column names or null if the columns are not
+     * selected by name
+     */
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * Determine the column indexes of the selected column names
+     *
+     * @param header
+     * @return
+     */
+    int[] resolveColumns(List<String> header) {
+        int[] indexes = new int[columnNames.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            String name = columnNames.get(i).trim().toUpperCase(Locale.ROOT);
+            indexes[i] = -1;
+            for (int c = 0; c < header.size() && indexes[i] < 0; c++) {
+                if (header.get(c).toUpperCase(Locale.ROOT).equals(name)) {
+                    indexes[i] = c;
+                }
+            }
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("Column " + columnNames.get(i) + " not found in the header row " + header);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     *
+     * @param columns
+     * @return
+     */
+    private static int[] checkColumns(int[] columns) {
+        if (columns == null) {
+            throw new NullPointerException("columns may not be null");
+        }
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("columns may not be empty");
+        }
+        for (int column : columns) {
+            if (column < 0) {
+                throw new IllegalArgumentException("Column indexes may not be < 0: " + column);
+            }
+        }
+        return columns.clone();
+    }
+
+    /**
+     *
+     * @param columnNames
+     * @return
+     */
+    private static List<String> checkColumnNames(String[] columnNames) {
+        if (columnNames == null) {
+            throw new NullPointerException("columnNames may not be null");
+        }
+        if (columnNames.length == 0) {
+            throw new IllegalArgumentException("columnNames may not be empty");
+        }
+        List<String> names = new ArrayList<>(columnNames.length);
+        for (String name : columnNames) {
+            if (name == null) {
+                throw new NullPointerException("Column names may not be null");
+            }
+            names.add(name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+}
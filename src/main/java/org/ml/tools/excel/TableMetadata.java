@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cached table and column metadata of one database connection, such that
+ * <code>DatabaseMetaData.getTables()</code> and <code>getColumns()</code> are
+ * only queried once per connection and table. The connection is passed to each
+ * lookup and not held here, so a cache keyed weakly by the connection does not
+ * keep it reachable.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class TableMetadata {
+
+    private volatile Set<String> tableNames;
+    private final Map<String, Map<String, CellType>> columns = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Integer>> sqlTypes = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Integer>> columnSizes = new ConcurrentHashMap<>();
+
+    /**
+     * @param connection
+     * @return the names of all tables in the database
+     * @throws SQLException
+     */
+    Set<String> getTableNames(Connection connection) throws SQLException {
+        if (connection == null) {
+            throw new NullPointerException("connection may not be null");
+        }
+        Set<String> names = tableNames;
+        if (names == null) {
+            synchronized (this) {
+                if (tableNames == null) {
+                    String[] types = {"TABLE"};   // Could also use null instead here as argument
+                    Set<String> databaseTableNames = new HashSet<>();
+                    try (ResultSet rs = connection.getMetaData().getTables(null, null, null, types)) {
+                        while (rs.next()) {
+                            databaseTableNames.add(rs.getString("TABLE_NAME"));
+                        }
+                    }
+                    tableNames = Collections.unmodifiableSet(databaseTableNames);
+                }
+                names = tableNames;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param connection
+     * @param tableName
+     * @return the column names of the table in their natural order, mapped to
+     * the cell type used for them in a sheet
+     * @throws SQLException
+     */
+    Map<String, CellType> getColumns(Connection connection, String tableName) throws SQLException {
+        if (tableName == null) {
+            throw new NullPointerException("tableName may not be null");
+        }
+        Map<String, CellType> columnTypes = columns.get(tableName);
+        if (columnTypes == null) {
+            columnTypes = new LinkedHashMap<>();
+            for (Map.Entry<String, Integer> entry : getSqlTypes(connection, tableName).entrySet()) {
+                switch (entry.getValue()) {
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.INTEGER:
+                    case Types.BIGINT:
+                    case Types.REAL:
+                    case Types.FLOAT:
+                    case Types.DOUBLE:
+                    case Types.DECIMAL:
+                    case Types.NUMERIC:
+                        columnTypes.put(entry.getKey(), CellType.NUMERIC);
+                        break;
+                    case Types.BIT:
+                    case Types.BOOLEAN:
+                        columnTypes.put(entry.getKey(), CellType.BOOLEAN);
+                        break;
+                    default:
+                        columnTypes.put(entry.getKey(), CellType.STRING);
+                }
+            }
+            columnTypes = Collections.unmodifiableMap(columnTypes);
+            columns.put(tableName, columnTypes);
+        }
+        return columnTypes;
+    }
+
+    /**
+     * @param connection
+     * @param tableName
+     * @return the column names of the table in their natural order, mapped to
+     * their JDBC type code
+     * @throws SQLException
+     */
+    Map<String, Integer> getSqlTypes(Connection connection, String tableName) throws SQLException {
+        if (connection == null) {
+            throw new NullPointerException("connection may not be null");
+        }
+        if (tableName == null) {
+            throw new NullPointerException("tableName may not be null");
+        }
+        Map<String, Integer> columnTypes = sqlTypes.get(tableName);
+        if (columnTypes == null) {
+            columnTypes = new LinkedHashMap<>();
+            Map<String, Integer> sizes = new LinkedHashMap<>();
+            DatabaseMetaData metadata = connection.getMetaData();
+            try (ResultSet rs = metadata.getColumns(null, null, tableName, null)) {
+                while (rs.next()) {
+                    columnTypes.put(rs.getString("COLUMN_NAME"), rs.getInt("DATA_TYPE"));
+                    sizes.put(rs.getString("COLUMN_NAME"), rs.getInt("COLUMN_SIZE"));
+                }
+            }
+            columnSizes.put(tableName, Collections.unmodifiableMap(sizes));
+            columnTypes = Collections.unmodifiableMap(columnTypes);
+            sqlTypes.put(tableName, columnTypes);
+        }
+        return columnTypes;
+    }
+
+    /**
+     * @param connection
+     * @param tableName
+     * @return the column names of the table in their natural order, mapped to
+     * their size, i. e. the maximum number of characters for character columns
+     * @throws SQLException
+     */
+    Map<String, Integer> getColumnSizes(Connection connection, String tableName) throws SQLException {
+        getSqlTypes(connection, tableName);
+        return columnSizes.get(tableName);
+    }
+
+    /**
+     * @param connection
+     * @param tableName
+     * @return the column names of the table in their natural order
+     * @throws SQLException
+     */
+    List<String> getColumnNames(Connection connection, String tableName) throws SQLException {
+        return new ArrayList<>(getColumns(connection, tableName).keySet());
+    }
+}
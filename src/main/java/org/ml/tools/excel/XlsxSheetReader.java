@@ -0,0 +1,546 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.excel;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.xml.sax.SAXException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A pull parser over the XML of a single XLSX sheet which returns the rows
+ * with the same semantics as {@link ExcelTools#getParsedSheet(org.apache.poi.ss.usermodel.Sheet)}:
+ * all rows start in the lowest column used in the sheet, cells are trimmed,
+ * trailing empty cells are removed and empty rows as well as rows with a first
+ * cell starting with a '#' are skipped.
+ * <p>
+ * Only one row is held in memory at a time. With a {@link SheetSelection},
+ * the content of cells outside of the selection is not read, and reading
+ * stops after the last selected row. The lowest column is determined from the
+ * cells in a separate pass over the sheet data, which ends as soon as a cell in
+ * column A is found; the &lt;dimension&gt; element of the sheet is not used as
+ * it may be stale.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class XlsxSheetReader implements SheetReader {
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+    private static final byte BLANK = 0;
+    private static final byte SHARED_STRING = 1;
+    private static final byte TEXT = 2;
+    private static final byte BOOLEAN = 3;
+    private static final byte NUMBER = 4;
+    private static final byte ERROR = 5;
+    private final OPCPackage ownedPackage;
+    private final SharedStrings sharedStrings;
+    private final InputStream sheetStream;
+    private final XMLStreamReader parser;
+    private final int minColNumber;
+    private final XlsxCells cells = new XlsxCells();
+    private RowSelector selector = new RowSelector(null);
+    private List<String> nextRow;
+    private int nextRowIndex = -1;
+    private int rowIndex = -1;
+    private boolean finished = false;
+
+    /**
+     * The raw cells of the current row: the kind of the cell and the content
+     * of the &lt;v&gt; element (or the inline string), converted on demand
+     */
+    private final class XlsxCells implements RowSelector.RawCells {
+
+        private byte[] kinds = new byte[16];
+        private String[] values = new String[16];
+        private int size = 0;
+
+        private void clear() {
+            Arrays.fill(kinds, 0, size, BLANK);
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+
+        private void set(int column, byte kind, String value) {
+            if (column >= kinds.length) {
+                int length = Math.max(column + 1, 2 * kinds.length);
+                kinds = Arrays.copyOf(kinds, length);
+                values = Arrays.copyOf(values, length);
+            }
+            kinds[column] = kind;
+            values[column] = value;
+            size = Math.max(size, column + 1);
+        }
+
+        private byte getKind(int column) {
+            return column < size ? kinds[column] : BLANK;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public CellType getCellType(int column) {
+            switch (getKind(column)) {
+                case SHARED_STRING:
+                case TEXT:
+                    return CellType.STRING;
+                case BOOLEAN:
+                    return CellType.BOOLEAN;
+                case NUMBER:
+                    return CellType.NUMERIC;
+                case ERROR:
+                    return CellType.ERROR;
+                default:
+                    return CellType.BLANK;
+            }
+        }
+
+        @Override
+        public double getNumericValue(int column) {
+            switch (getKind(column)) {
+                case NUMBER:
+                    return Double.parseDouble(values[column]);
+                case SHARED_STRING:
+                case TEXT:
+                    return RowSelector.parseNumber(getStringValue(column));
+                default:
+                    return Double.NaN;
+            }
+        }
+
+        @Override
+        public String getStringValue(int column) {
+            switch (getKind(column)) {
+                case SHARED_STRING:
+                    return sharedStrings.getItemAt(Integer.parseInt(values[column].trim())).getString();
+                case TEXT:
+                    return values[column];
+                default:
+                    return "";
+            }
+        }
+
+        @Override
+        public boolean getBooleanValue(int column) {
+            switch (getKind(column)) {
+                case BOOLEAN:
+                    return "1".equals(values[column].trim());
+                case SHARED_STRING:
+                case TEXT:
+                    return Boolean.parseBoolean(getStringValue(column).trim());
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Convert the cell the same way as
+         * {@link ExcelCellData#getProcessedData()}
+         *
+         * @param column
+         * @return
+         */
+        @Override
+        public String getData(int column) {
+            switch (getKind(column)) {
+                case SHARED_STRING:
+                case TEXT:
+                    return getStringValue(column).trim();
+                case BOOLEAN:
+                    return String.valueOf(getBooleanValue(column));
+                case NUMBER:
+                    return String.valueOf(Double.parseDouble(values[column]));
+                case ERROR:
+                    throw new UnsupportedOperationException("Unsupported POI cell type: ERROR");
+                default:
+                    return "";
+            }
+        }
+    }
+
+    /**
+     *
+     * @param sheetPart
+     * @param sharedStrings
+     * @param ownedPackage the package to revert on close or null if it is
+     * managed by the caller
+     * @throws IOException
+     */
+    XlsxSheetReader(PackagePart sheetPart, SharedStrings sharedStrings, OPCPackage ownedPackage) throws IOException {
+        if (sheetPart == null) {
+            throw new NullPointerException("sheetPart may not be null");
+        }
+        if (sharedStrings == null) {
+            throw new NullPointerException("sharedStrings may not be null");
+        }
+        this.sharedStrings = sharedStrings;
+        this.ownedPackage = ownedPackage;
+        try {
+            this.minColNumber = scanMinColumn(sheetPart);
+            this.sheetStream = sheetPart.getInputStream();
+            this.parser = XML_INPUT_FACTORY.createXMLStreamReader(sheetStream);
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Open the workbook read-only and create a reader for the sheet given; the
+     * workbook is released when the reader is closed
+     *
+     * @param path
+     * @param sheetName the name of the sheet or null for the first sheet
+     * @return
+     * @throws IOException
+     */
+    static XlsxSheetReader open(Path path, String sheetName) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path may not be null");
+        }
+        OPCPackage workbookPackage;
+        try {
+            workbookPackage = OPCPackage.open(path.toFile(), PackageAccess.READ);
+        } catch (OpenXML4JException ex) {
+            throw new IOException("Could not open " + path, ex);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(workbookPackage);
+            SharedStrings sharedStrings = new ReadOnlySharedStringsTable(workbookPackage);
+            return new XlsxSheetReader(findSheet(reader, sheetName), sharedStrings, workbookPackage);
+        } catch (OpenXML4JException | SAXException ex) {
+            workbookPackage.revert();
+            throw new IOException("Could not read " + path, ex);
+        } catch (IOException | RuntimeException ex) {
+            workbookPackage.revert();
+            throw ex;
+        }
+    }
+
+    /**
+     *
+     * @param reader
+     * @param sheetName the name of the sheet or null for the first sheet
+     * @return
+     * @throws IOException
+     * @throws OpenXML4JException
+     */
+    static PackagePart findSheet(XSSFReader reader, String sheetName) throws IOException, OpenXML4JException {
+        XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+        while (sheets.hasNext()) {
+            sheets.next().close();
+            if (sheetName == null || sheetName.equals(sheets.getSheetName())) {
+                return sheets.getSheetPart();
+            }
+        }
+        if (sheetName == null) {
+            throw new IllegalArgumentException("Workbook does not contain any sheet");
+        }
+        throw new IllegalArgumentException("Workbook does not contain a sheet named " + sheetName);
+    }
+
+    /**
+     *
+     * @param selection
+     */
+    @Override
+    public void setSelection(SheetSelection selection) {
+        if (nextRowIndex >= 0) {
+            throw new IllegalStateException("The selection can not be changed after rows have been read");
+        }
+        selector = new RowSelector(selection);
+    }
+
+    /**
+     * @return the 0-based sheet index of the row last returned by
+     * {@link #next()}
+     */
+    @Override
+    public int getRowIndex() {
+        return rowIndex;
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public boolean hasNext() {
+        try {
+            while (nextRow == null && !finished) {
+                advance();
+            }
+        } catch (XMLStreamException ex) {
+            throw new UncheckedIOException(new IOException(ex));
+        }
+        return nextRow != null;
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> row = nextRow;
+        rowIndex = nextRowIndex;
+        nextRow = null;
+        return row;
+    }
+
+    /**
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        try {
+            parser.close();
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex);
+        } finally {
+            sheetStream.close();
+            if (ownedPackage != null) {
+                ownedPackage.revert();
+            }
+        }
+    }
+
+    /**
+     * Parse the next &lt;row&gt; element; only the raw data of the cells
+     * needed by the selection is read
+     *
+     * @throws XMLStreamException
+     */
+    private void advance() throws XMLStreamException {
+        boolean inRow = false;
+        boolean skipRow = false;
+        int currentRowIndex = nextRowIndex;
+        int colIndex = minColNumber - 1;
+
+        while (parser.hasNext()) {
+            int event = parser.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (parser.getLocalName()) {
+                    case "row":
+                        String r = parser.getAttributeValue(null, "r");
+                        currentRowIndex = r == null ? currentRowIndex + 1 : Integer.parseInt(r) - 1;
+                        if (selector.isAfterRange(currentRowIndex)) {
+                            finished = true;
+                            return;
+                        }
+                        inRow = true;
+                        skipRow = selector.isBeforeRange(currentRowIndex);
+                        cells.clear();
+                        colIndex = minColNumber - 1;
+                        break;
+                    case "c":
+                        String reference = parser.getAttributeValue(null, "r");
+                        colIndex = reference == null ? colIndex + 1 : columnIndex(reference);
+                        int column = colIndex - minColNumber;
+                        if (inRow && !skipRow && column >= 0 && selector.isNeeded(column)) {
+                            readCell(column, parser.getAttributeValue(null, "t"));
+                        } else {
+                            skipCell();
+                        }
+                        break;
+                    default:
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (parser.getLocalName().equals("row")) {
+                    nextRowIndex = currentRowIndex;
+                    if (!skipRow) {
+                        nextRow = selector.select(currentRowIndex, cells);
+                    }
+                    return;
+                } else if (parser.getLocalName().equals("sheetData")) {
+                    finished = true;
+                    return;
+                }
+            }
+        }
+        finished = true;
+    }
+
+    /**
+     * Read the raw content of a &lt;c&gt; element into the cells of the
+     * current row. The parser is positioned on the start element and left on
+     * the end element.
+     *
+     * @param column the index in the parsed row
+     * @param cellType the value of the t attribute
+     * @throws XMLStreamException
+     */
+    private void readCell(int column, String cellType) throws XMLStreamException {
+        String value = null;
+        StringBuilder inlineString = null;
+        int phoneticDepth = 0;
+
+        while (parser.hasNext()) {
+            int event = parser.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (parser.getLocalName()) {
+                    case "v":
+                        value = parser.getElementText();
+                        break;
+                    case "is":
+                        inlineString = new StringBuilder();
+                        break;
+                    case "rPh":
+                        phoneticDepth++;
+                        break;
+                    case "t":
+                        String text = parser.getElementText();
+                        if (inlineString != null && phoneticDepth == 0) {
+                            inlineString.append(text);
+                        }
+                        break;
+                    default:
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                if (parser.getLocalName().equals("rPh")) {
+                    phoneticDepth--;
+                } else if (parser.getLocalName().equals("c")) {
+                    break;
+                }
+            }
+        }
+
+        if (cellType == null) {
+            cellType = "n";
+        }
+        switch (cellType) {
+            case "s":
+                cells.set(column, value == null ? BLANK : SHARED_STRING, value);
+                break;
+            case "inlineStr":
+                cells.set(column, inlineString == null ? BLANK : TEXT, inlineString == null ? null : inlineString.toString());
+                break;
+            case "b":
+                cells.set(column, value == null ? BLANK : BOOLEAN, value);
+                break;
+            case "str":
+            case "d":
+                cells.set(column, value == null ? BLANK : TEXT, value);
+                break;
+            case "e":
+                cells.set(column, ERROR, value);
+                break;
+            case "n":
+            default:
+                cells.set(column, value == null || value.isBlank() ? BLANK : NUMBER, value);
+        }
+    }
+
+    /**
+     * Skip a &lt;c&gt; element without reading its content
+     *
+     * @throws XMLStreamException
+     */
+    private void skipCell() throws XMLStreamException {
+        while (parser.hasNext()) {
+            if (parser.next() == XMLStreamConstants.END_ELEMENT && parser.getLocalName().equals("c")) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Separate pass over the sheet to find the lowest column used; the pass
+     * stops at the first cell in column A
+     *
+     * @param sheetPart
+     * @return
+     * @throws IOException
+     * @throws XMLStreamException
+     */
+    private static int scanMinColumn(PackagePart sheetPart) throws IOException, XMLStreamException {
+        int minCol = Integer.MAX_VALUE;
+        try (InputStream stream = sheetPart.getInputStream()) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(stream);
+            try {
+                int colIndex = -1;
+                while (minCol > 0 && reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        if (reader.getLocalName().equals("row")) {
+                            colIndex = -1;
+                        } else if (reader.getLocalName().equals("c")) {
+                            String reference = reader.getAttributeValue(null, "r");
+                            colIndex = reference == null ? colIndex + 1 : columnIndex(reference);
+                            minCol = Math.min(minCol, colIndex);
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return minCol == Integer.MAX_VALUE ? 0 : minCol;
+    }
+
+    /**
+     * The 0-based column index of a cell reference like "AB12"
+     *
+     * @param reference
+     * @return
+     */
+    static int columnIndex(String reference) {
+        int col = 0;
+        for (int i = 0; i < reference.length(); i++) {
+            char c = reference.charAt(i);
+            if (c == '$') {
+                continue;
+            }
+            if (c < 'A' || c > 'Z') {
+                break;
+            }
+            col = col * 26 + (c - 'A' + 1);
+        }
+        return col - 1;
+    }
+}
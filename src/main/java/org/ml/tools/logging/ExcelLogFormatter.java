@@ -27,18 +27,24 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
-import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
+import org.ml.tools.excel.CellWriter;
 
 /**
+ * Writes log records as rows of a sheet. The repetitive level and logger
+ * names are written through a {@link CellWriter}, the time is written as a
+ * date cell with a single shared style.
  *
  * @author Dr. Matthias Laux
  */
 public class ExcelLogFormatter extends Formatter {
 
+    public static final String TIME_FORMAT = "mmm dd,yyyy hh:mm:ss";
     private int rowIndex = 0;
     private Sheet sheet = null;
+    private CellWriter cellWriter = null;
 
     /**
      *
@@ -49,6 +55,7 @@ public class ExcelLogFormatter extends Formatter {
             throw new IllegalArgumentException("sheet may not be null");
         }
         this.sheet = sheet;
+        cellWriter = new CellWriter(sheet.getWorkbook());
         addTextCellRow(sheet, rowIndex, 0, "Level", "Time", "Logger", "Message");
         rowIndex++;
     }
@@ -75,19 +82,37 @@ public class ExcelLogFormatter extends Formatter {
 
         int colIndex = 0;
         Row row = sheet.createRow(rowIndex++);
-        Cell cell = row.createCell(colIndex++);
-        cell.setCellValue(record.getLevel().toString());
-        cell = row.createCell(colIndex++);
-        cell.setCellValue(calcDate(record.getMillis()));
-        cell = row.createCell(colIndex++);
-        cell.setCellValue(record.getLoggerName());
-        cell = row.createCell(colIndex);
-        cell.setCellValue(formatMessage(record).replaceAll("\n", " "));
+        cellWriter.setCellValue(row.createCell(colIndex++), record.getLevel().toString());
+        cellWriter.setCellValue(row.createCell(colIndex++), toExcelDate(record.getMillis()), TIME_FORMAT);
+        cellWriter.setCellValue(row.createCell(colIndex++), record.getLoggerName());
+        cellWriter.setCellValue(row.createCell(colIndex), formatMessage(record).replaceAll("\n", " "));
 
         return "";
     }
 
     /**
+     * The cell writer used for the sheet, e. g. to check the size of the
+     * shared strings and cell style tables
+     *
+     * @return
+     */
+    public CellWriter getCellWriter() {
+        return cellWriter;
+    }
+
+    /**
+     * Convert a time to an Excel date value in the local time zone
+     *
+     * @param millisecs
+     * @return
+     */
+    protected double toExcelDate(long millisecs) {
+        return DateUtil.getExcelDate(new Date(millisecs));
+    }
+
+    /**
+     * The time as a string in the format used by earlier versions of this
+     * formatter (the time is now written as a date cell)
      *
      * @param millisecs
      * @return
@@ -120,10 +145,8 @@ public class ExcelLogFormatter extends Formatter {
         }
 
         Row row = sheet.createRow(rowIndex);
-        Cell cell;
         for (String value : values) {
-            cell = row.createCell(colStartIndex++);
-            cell.setCellValue(value);
+            cellWriter.setCellValue(row.createCell(colStartIndex++), value);
         }
     }
 
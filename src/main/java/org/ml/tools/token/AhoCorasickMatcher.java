@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.token;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An Aho-Corasick automaton over a set of patterns, compiled into a
+ * deterministic transition table. Characters which do not occur in any pattern
+ * always lead back to the start state, such that the cost per character does
+ * not depend on the number of patterns.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class AhoCorasickMatcher {
+
+    static final int START_STATE = 0;
+    private static final int ASCII_SIZE = 128;
+    private final int[] asciiSymbols = new int[ASCII_SIZE];
+    private final Map<Character, Integer> otherSymbols = new HashMap<>();
+    private final int[][] transitions;
+    private final int[] depth;
+    private final int[] match;
+
+    /**
+     *
+     * @param patterns
+     */
+    AhoCorasickMatcher(String... patterns) {
+        if (patterns == null) {
+            throw new IllegalArgumentException("patterns may not be null");
+        }
+
+        //.... Map the characters used in the patterns to a compact alphabet
+        Arrays.fill(asciiSymbols, -1);
+        int symbolCount = 0;
+        for (String pattern : patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                if (symbolOf(pattern.charAt(i)) < 0) {
+                    char c = pattern.charAt(i);
+                    if (c < ASCII_SIZE) {
+                        asciiSymbols[c] = symbolCount++;
+                    } else {
+                        otherSymbols.put(c, symbolCount++);
+                    }
+                }
+            }
+        }
+
+        //.... Build the trie
+        List<int[]> children = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        List<Integer> matches = new ArrayList<>();
+        children.add(newRow(symbolCount));
+        depths.add(0);
+        matches.add(-1);
+        for (int p = 0; p < patterns.length; p++) {
+            int state = START_STATE;
+            for (int i = 0; i < patterns[p].length(); i++) {
+                int symbol = symbolOf(patterns[p].charAt(i));
+                if (children.get(state)[symbol] < 0) {
+                    children.get(state)[symbol] = children.size();
+                    children.add(newRow(symbolCount));
+                    depths.add(i + 1);
+                    matches.add(-1);
+                }
+                state = children.get(state)[symbol];
+            }
+            if (matches.get(state) < 0) {
+                matches.set(state, p);
+            }
+        }
+
+        int stateCount = children.size();
+        transitions = new int[stateCount][];
+        depth = new int[stateCount];
+        match = new int[stateCount];
+        int[] failure = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            transitions[s] = children.get(s);
+            depth[s] = depths.get(s);
+            match[s] = matches.get(s);
+        }
+
+        //.... Breadth-first over the trie to turn the failure links into a complete transition table
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int symbol = 0; symbol < symbolCount; symbol++) {
+            int child = transitions[START_STATE][symbol];
+            if (child < 0) {
+                transitions[START_STATE][symbol] = START_STATE;
+            } else {
+                failure[child] = START_STATE;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (match[state] < 0) {
+                match[state] = match[failure[state]];
+            }
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                int child = transitions[state][symbol];
+                if (child < 0) {
+                    transitions[state][symbol] = transitions[failure[state]][symbol];
+                } else {
+                    failure[child] = transitions[failure[state]][symbol];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     *
+     * @param state
+     * @param c
+     * @return
+     */
+    int next(int state, char c) {
+        int symbol = symbolOf(c);
+        if (symbol < 0) {
+            return START_STATE;
+        }
+        return transitions[state][symbol];
+    }
+
+    /**
+     * The number of characters of a potential match consumed in the state
+     * given
+     *
+     * @param state
+     * @return
+     */
+    int depth(int state) {
+        return depth[state];
+    }
+
+    /**
+     * The index of the pattern ending in the state given or -1 if there is
+     * none
+     *
+     * @param state
+     * @return
+     */
+    int match(int state) {
+        return match[state];
+    }
+
+    /**
+     *
+     * @param c
+     * @return
+     */
+    private int symbolOf(char c) {
+        if (c < ASCII_SIZE) {
+            return asciiSymbols[c];
+        }
+        Integer symbol = otherSymbols.get(c);
+        return symbol == null ? -1 : symbol;
+    }
+
+    /**
+     *
+     * @param size
+     * @return
+     */
+    private static int[] newRow(int size) {
+        int[] row = new int[size];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
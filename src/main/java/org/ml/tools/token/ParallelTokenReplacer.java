@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.token;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import org.ml.tools.ToolBelt;
+
+/**
+ * A parallel alternative to {@link TokenReplacingReader} for large inputs. The
+ * source is read in chunks which are cut such that no <code>${...}</code>
+ * token is split, the chunks are resolved concurrently on a
+ * {@link ForkJoinPool} and the results are written to the target in their
+ * original order.
+ * <p>
+ * The resolver is called from several threads at the same time and therefore
+ * has to be thread-safe. The number of chunks in flight is bounded such that
+ * memory use does not depend on the size of the input. For the same reason, a
+ * <code>${</code> which is not closed within one chunk size is copied as
+ * literal text, i. e. token names can not be longer than the chunk size.
+ *
+ * @author Dr. Matthias Laux
+ */
+public class ParallelTokenReplacer {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    private final ITokenResolver tokenResolver;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final int maxChunksInFlight;
+
+    /**
+     *
+     * @param tokenResolver
+     * @param chunkSize
+     * @param pool
+     */
+    public ParallelTokenReplacer(ITokenResolver tokenResolver, int chunkSize, ForkJoinPool pool) {
+        if (tokenResolver == null) {
+            throw new IllegalArgumentException("tokenResolver may not be null");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be > 0");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("pool may not be null");
+        }
+        this.tokenResolver = tokenResolver;
+        this.chunkSize = chunkSize;
+        this.pool = pool;
+        this.maxChunksInFlight = 2 * pool.getParallelism();
+    }
+
+    /**
+     * Uses the default chunk size and the common pool
+     *
+     * @param tokenResolver
+     */
+    public ParallelTokenReplacer(ITokenResolver tokenResolver) {
+        this(tokenResolver, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     *
+     * @param source
+     * @param target
+     * @param charset
+     * @throws IOException
+     */
+    public void replace(Path source, Path target, Charset charset) throws IOException {
+        if (source == null) {
+            throw new IllegalArgumentException("source may not be null");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("target may not be null");
+        }
+        if (charset == null) {
+            throw new IllegalArgumentException("charset may not be null");
+        }
+        try (BufferedReader reader = Files.newBufferedReader(source, charset);
+                BufferedWriter writer = Files.newBufferedWriter(target, charset)) {
+            replace(reader, writer);
+        }
+    }
+
+    /**
+     * Uses the default charset of {@link ToolBelt}
+     *
+     * @param source
+     * @param target
+     * @throws IOException
+     */
+    public void replace(Path source, Path target) throws IOException {
+        replace(source, target, ToolBelt.DEFAULT_CHARSET);
+    }
+
+    /**
+     * Read all data from the source, replace the tokens and write the result
+     * to the target. Neither source nor target are closed.
+     *
+     * @param source
+     * @param target
+     * @throws IOException
+     */
+    public void replace(Reader source, Writer target) throws IOException {
+        if (source == null) {
+            throw new IllegalArgumentException("source may not be null");
+        }
+        if (target == null) {
+            throw new IllegalArgumentException("target may not be null");
+        }
+
+        Deque<ForkJoinTask<String>> tasks = new ArrayDeque<>();
+        char[] buffer = new char[chunkSize];
+        StringBuilder carry = new StringBuilder();
+
+        try {
+            int count;
+            while ((count = fill(source, buffer)) > 0) {
+
+                //.... Cut the chunk behind the last complete token and keep the rest for the next one
+                StringBuilder chunk = carry.append(buffer, 0, count);
+                int boundary = TokenChunks.safeBoundary(chunk, chunkSize);
+                carry = new StringBuilder(chunk.length() - boundary + chunkSize);
+                carry.append(chunk, boundary, chunk.length());
+                chunk.setLength(boundary);
+
+                if (chunk.length() > 0) {
+                    tasks.addLast(pool.submit(() -> replaceTokens(chunk)));
+                }
+                while (tasks.size() >= maxChunksInFlight) {
+                    target.write(join(tasks.removeFirst()));
+                }
+            }
+
+            //.... Whatever is left over does not contain a complete token anymore
+            if (carry.length() > 0) {
+                StringBuilder chunk = carry;
+                tasks.addLast(pool.submit(() -> replaceTokens(chunk)));
+            }
+            while (!tasks.isEmpty()) {
+                target.write(join(tasks.removeFirst()));
+            }
+        } finally {
+            for (ForkJoinTask<String> task : tasks) {
+                task.cancel(true);
+            }
+        }
+        target.flush();
+    }
+
+    /**
+     *
+     * @param chunk
+     * @return
+     */
+    private String replaceTokens(CharSequence chunk) {
+        StringBuilder sb = new StringBuilder(chunk.length() + (chunk.length() >> 3));
+        TokenChunks.replaceTokens(chunk, chunk.length(), tokenResolver, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Read until the buffer is full or the end of the source is reached
+     *
+     * @param source
+     * @param buffer
+     * @return
+     * @throws IOException
+     */
+    private static int fill(Reader source, char[] buffer) throws IOException {
+        int count = 0;
+        while (count < buffer.length) {
+            int n = source.read(buffer, count, buffer.length - count);
+            if (n < 0) {
+                break;
+            }
+            count += n;
+        }
+        return count;
+    }
+
+    /**
+     *
+     * @param task
+     * @return
+     * @throws IOException
+     */
+    private static String join(ForkJoinTask<String> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for chunk", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+    }
+}
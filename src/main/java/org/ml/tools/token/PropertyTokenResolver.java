@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.token;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.ml.tools.Namespace;
+import org.ml.tools.PropertyManager;
+import org.ml.tools.logging.LoggerFactory;
+
+/**
+ * A resolver for namespace-qualified tokens of the form
+ * <code>${ns:key}</code> backed by a {@link PropertyManager}. Everything in
+ * front of the last ':' is taken as the namespace (which may itself contain
+ * ':' separators), tokens without a ':' are looked up in
+ * {@link PropertyManager#DEFAULT_NAMESPACE}.
+ * <p>
+ * The properties are copied once when the resolver is created, later changes
+ * to the PropertyManager are therefore not visible. The parsed namespace and
+ * the value are cached per token name, such that instances can be shared by
+ * concurrent renders. Unknown tokens resolve to <code>null</code>, i. e. they
+ * are left unchanged by {@link TokenReplacingReader}.
+ *
+ * @author Dr. Matthias Laux
+ */
+public class PropertyTokenResolver implements ITokenResolver {
+
+    private final static Logger LOGGER = LoggerFactory.getLogger(PropertyTokenResolver.class.getName());
+    private static final char SEPARATOR_CHAR = ':';
+    private final Map<Namespace, Map<String, String>> properties = new HashMap<>();
+    private final ConcurrentMap<String, ResolvedToken> tokenCache = new ConcurrentHashMap<>();
+    private boolean debug = false;
+
+    /**
+     *
+     */
+    private static final class ResolvedToken {
+
+        private final Namespace namespace;
+        private final String key;
+        private final String value;
+
+        /**
+         *
+         * @param namespace
+         * @param key
+         * @param value
+         */
+        private ResolvedToken(Namespace namespace, String key, String value) {
+            this.namespace = namespace;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     *
+     * @param propertyManager
+     * @param debug
+     */
+    public PropertyTokenResolver(PropertyManager propertyManager, boolean debug) {
+        if (propertyManager == null) {
+            throw new IllegalArgumentException("propertyManager may not be null");
+        }
+        for (Namespace namespace : propertyManager.getNamespaces()) {
+            properties.put(namespace, new HashMap<>(propertyManager.getProperties(namespace)));
+        }
+        this.debug = debug;
+    }
+
+    /**
+     *
+     * @param propertyManager
+     */
+    public PropertyTokenResolver(PropertyManager propertyManager) {
+        this(propertyManager, false);
+    }
+
+    /**
+     *
+     * @param tokenName
+     * @return
+     */
+    @Override
+    public String resolveToken(String tokenName) {
+        if (tokenName == null) {
+            throw new IllegalArgumentException("tokenName may not be null");
+        }
+        ResolvedToken resolvedToken = tokenCache.computeIfAbsent(tokenName, this::resolve);
+        if (debug) {
+            LOGGER.log(Level.INFO, "Replacing token ''{0}'' (namespace ''{1}'', key ''{2}'') with ''{3}''",
+                    new Object[]{tokenName, resolvedToken.namespace, resolvedToken.key, resolvedToken.value});
+        }
+        return resolvedToken.value;
+    }
+
+    /**
+     *
+     * @param tokenName
+     * @return
+     */
+    private ResolvedToken resolve(String tokenName) {
+        Namespace namespace;
+        String key;
+        int index = tokenName.lastIndexOf(SEPARATOR_CHAR);
+        if (index < 0) {
+            namespace = PropertyManager.DEFAULT_NAMESPACE;
+            key = tokenName;
+        } else {
+            namespace = new Namespace(tokenName.substring(0, index).split(String.valueOf(SEPARATOR_CHAR), -1));
+            key = tokenName.substring(index + 1);
+        }
+        Map<String, String> namespaceProperties = properties.get(namespace);
+        String value = namespaceProperties == null ? null : namespaceProperties.get(key);
+        return new ResolvedToken(namespace, key, value);
+    }
+}
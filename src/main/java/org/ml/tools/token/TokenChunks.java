@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.token;
+
+/**
+ * Helper methods to perform the <code>${...}</code> token replacement on
+ * complete chunks of text instead of character by character. The semantics are
+ * the same as in {@link TokenReplacingReader}: a token name runs from
+ * <code>${</code> to the next <code>}</code>, and a <code>null</code> value
+ * returned by the resolver leaves the token in the output unchanged.
+ *
+ * @author Dr. Matthias Laux
+ */
+final class TokenChunks {
+
+    private TokenChunks() {
+    }
+
+    /**
+     * Determine the largest prefix of the given text that can be processed
+     * without cutting through a token. Everything behind the returned index
+     * has to be carried over and prepended to the next chunk.
+     *
+     * @param text
+     * @return
+     */
+    static int safeBoundary(CharSequence text) {
+        return safeBoundary(text, text.length());
+    }
+
+    /**
+     * Same as {@link #safeBoundary(CharSequence)}, but an unterminated token
+     * starting more than <code>maxTokenLength</code> characters before the
+     * end of the text is taken as literal text, such that at most
+     * <code>maxTokenLength</code> characters have to be carried over
+     *
+     * @param text
+     * @param maxTokenLength
+     * @return
+     */
+    static int safeBoundary(CharSequence text, int maxTokenLength) {
+        int length = text.length();
+        int lastClose = lastIndexOf(text, '}', length - 1);
+
+        //.... After the last '}' we are always outside of a token, i. e. the first "${" there opens an unterminated one
+        for (int i = Math.max(lastClose + 1, length - maxTokenLength); i < length - 1; i++) {
+            if (text.charAt(i) == '$' && text.charAt(i + 1) == '{') {
+                return i;
+            }
+        }
+
+        //.... A trailing '$' could still become the start of a token with the next chunk
+        if (length > 0 && text.charAt(length - 1) == '$') {
+            return length - 1;
+        }
+        return length;
+    }
+
+    /**
+     * Replace all tokens in the range [0, end) of the given text and append
+     * the result to the target. Tokens without a closing '}' are copied
+     * unchanged.
+     *
+     * @param text
+     * @param end
+     * @param resolver
+     * @param target
+     */
+    static void replaceTokens(CharSequence text, int end, ITokenResolver resolver, StringBuilder target) {
+        int start = 0;
+        int i = 0;
+        while (i < end - 1) {
+            if (text.charAt(i) == '$' && text.charAt(i + 1) == '{') {
+                int close = indexOf(text, '}', i + 2, end);
+                if (close < 0) {
+                    break;
+                }
+                target.append(text, start, i);
+                String tokenName = text.subSequence(i + 2, close).toString();
+                String tokenValue = resolver.resolveToken(tokenName);
+                if (tokenValue == null) {
+                    target.append("${").append(tokenName).append('}');
+                } else {
+                    target.append(tokenValue);
+                }
+                i = close + 1;
+                start = i;
+            } else {
+                i++;
+            }
+        }
+        target.append(text, start, end);
+    }
+
+    /**
+     *
+     * @param text
+     * @param c
+     * @param from
+     * @param end
+     * @return
+     */
+    private static int indexOf(CharSequence text, char c, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *
+     * @param text
+     * @param c
+     * @param from
+     * @return
+     */
+    private static int lastIndexOf(CharSequence text, char c, int from) {
+        for (int i = from; i >= 0; i--) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
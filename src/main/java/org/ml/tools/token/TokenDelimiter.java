@@ -0,0 +1,93 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.token;
+
+/**
+ * The prefix and suffix enclosing a token name, e. g. <code>${</code> and
+ * <code>}</code> for <code>${name}</code>
+ *
+ * @author Dr. Matthias Laux
+ */
+public class TokenDelimiter {
+
+    public static final TokenDelimiter DOLLAR_BRACES = new TokenDelimiter("${", "}");
+    public static final TokenDelimiter DOUBLE_HASH = new TokenDelimiter("##", "##");
+    public static final TokenDelimiter AT_SIGN = new TokenDelimiter("@", "@");
+    private final String prefix;
+    private final String suffix;
+
+    /**
+     *
+     * @param prefix
+     * @param suffix
+     */
+    public TokenDelimiter(String prefix, String suffix) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("prefix may not be null");
+        }
+        if (suffix == null) {
+            throw new IllegalArgumentException("suffix may not be null");
+        }
+        if (prefix.isEmpty()) {
+            throw new IllegalArgumentException("prefix may not be empty");
+        }
+        if (suffix.isEmpty()) {
+            throw new IllegalArgumentException("suffix may not be empty");
+        }
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * @return the prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return the suffix
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     *
+     * @param tokenName
+     * @return
+     */
+    public String format(String tokenName) {
+        return prefix + tokenName + suffix;
+    }
+
+    /**
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return format("");
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.token;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.concurrent.Flow;
+import org.ml.tools.ToolBelt;
+
+/**
+ * A non-blocking counterpart of {@link TokenReplacingReader} for
+ * {@link Flow} based pipelines. Incoming byte chunks are decoded, the
+ * <code>${...}</code> tokens are replaced and the result is passed on as
+ * encoded byte chunks. Tokens which are split across chunk boundaries are
+ * carried over to the next chunk.
+ * <p>
+ * Backpressure is honoured by requesting one chunk from upstream at a time and
+ * only while the downstream subscriber has outstanding demand. Exactly one
+ * downstream subscriber is supported.
+ *
+ * @author Dr. Matthias Laux
+ */
+public class TokenReplacingProcessor implements Flow.Processor<ByteBuffer, ByteBuffer> {
+
+    private final ITokenResolver tokenResolver;
+    private final CharsetDecoder decoder;
+    private final CharsetEncoder encoder;
+    private final StringBuilder carry = new StringBuilder();
+    private ByteBuffer pendingBytes = ByteBuffer.allocate(0);
+    private Flow.Subscription upstream;
+    private Flow.Subscriber<? super ByteBuffer> downstream;
+    private long demand = 0;
+    private boolean upstreamRequested = false;
+    private boolean upstreamCompleted = false;
+    private boolean done = false;
+    private ByteBuffer finalChunk;
+
+    /**
+     *
+     * @param tokenResolver
+     * @param charset
+     */
+    public TokenReplacingProcessor(ITokenResolver tokenResolver, Charset charset) {
+        if (tokenResolver == null) {
+            throw new IllegalArgumentException("tokenResolver may not be null");
+        }
+        if (charset == null) {
+            throw new IllegalArgumentException("charset may not be null");
+        }
+        this.tokenResolver = tokenResolver;
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Uses the default charset of {@link ToolBelt}
+     *
+     * @param tokenResolver
+     */
+    public TokenReplacingProcessor(ITokenResolver tokenResolver) {
+        this(tokenResolver, ToolBelt.DEFAULT_CHARSET);
+    }
+
+    /**
+     *
+     * @param subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber may not be null");
+        }
+        synchronized (this) {
+            if (downstream == null) {
+                downstream = subscriber;
+                subscriber.onSubscribe(new DownstreamSubscription());
+                return;
+            }
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        });
+        subscriber.onError(new IllegalStateException("Only one subscriber is supported"));
+    }
+
+    /**
+     *
+     * @param subscription
+     */
+    @Override
+    public synchronized void onSubscribe(Flow.Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("subscription may not be null");
+        }
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        requestUpstream();
+    }
+
+    /**
+     *
+     * @param item
+     */
+    @Override
+    public synchronized void onNext(ByteBuffer item) {
+        if (item == null) {
+            throw new NullPointerException("item may not be null");
+        }
+        if (done) {
+            return;
+        }
+        try {
+            decode(item, false);
+
+            //.... Only the part up to the last complete token can be passed on now
+            int boundary = TokenChunks.safeBoundary(carry);
+            ByteBuffer chunk = replace(boundary);
+            if (chunk.hasRemaining()) {
+                demand--;
+                downstream.onNext(chunk);
+            }
+        } catch (RuntimeException | CharacterCodingException ex) {
+            upstream.cancel();
+            fail(ex);
+            return;
+        }
+        upstreamRequested = false;
+        requestUpstream();
+    }
+
+    /**
+     *
+     * @param throwable
+     */
+    @Override
+    public synchronized void onError(Throwable throwable) {
+        if (throwable == null) {
+            throw new NullPointerException("throwable may not be null");
+        }
+        fail(throwable);
+    }
+
+    /**
+     *
+     */
+    @Override
+    public synchronized void onComplete() {
+        if (done) {
+            return;
+        }
+        upstreamCompleted = true;
+        try {
+            decode(ByteBuffer.allocate(0), true);
+            CharBuffer rest = CharBuffer.allocate(16);
+            decoder.flush(rest);
+            carry.append(rest.flip());
+
+            //.... Whatever is left over does not contain a complete token anymore
+            finalChunk = replace(carry.length());
+        } catch (RuntimeException | CharacterCodingException ex) {
+            fail(ex);
+            return;
+        }
+        drainFinalChunk();
+    }
+
+    /**
+     * Request the next chunk from upstream if there is downstream demand and
+     * no request is outstanding yet
+     */
+    private void requestUpstream() {
+        if (!done && !upstreamCompleted && upstream != null && demand > 0 && !upstreamRequested) {
+            upstreamRequested = true;
+            upstream.request(1);
+        }
+    }
+
+    /**
+     * Pass on the last chunk and the completion signal once there is demand
+     */
+    private void drainFinalChunk() {
+        if (done || !upstreamCompleted || downstream == null) {
+            return;
+        }
+        if (finalChunk.hasRemaining()) {
+            if (demand <= 0) {
+                return;
+            }
+            demand--;
+            downstream.onNext(finalChunk);
+        }
+        done = true;
+        downstream.onComplete();
+    }
+
+    /**
+     *
+     * @param throwable
+     */
+    private void fail(Throwable throwable) {
+        if (done) {
+            return;
+        }
+        done = true;
+        if (downstream != null) {
+            downstream.onError(throwable);
+        }
+    }
+
+    /**
+     * Decode the bytes and append the characters to the carry; incomplete
+     * multi-byte sequences are kept for the next chunk
+     *
+     * @param item
+     * @param endOfInput
+     */
+    private void decode(ByteBuffer item, boolean endOfInput) {
+        ByteBuffer in = item;
+        if (pendingBytes.hasRemaining()) {
+            in = ByteBuffer.allocate(pendingBytes.remaining() + item.remaining());
+            in.put(pendingBytes).put(item).flip();
+        }
+        CharBuffer out = CharBuffer.allocate((int) (in.remaining() * decoder.maxCharsPerByte()) + 1);
+        decoder.decode(in, out, endOfInput);
+        carry.append(out.flip());
+        pendingBytes = ByteBuffer.allocate(in.remaining());
+        pendingBytes.put(in).flip();
+    }
+
+    /**
+     * Replace the tokens in the first <code>end</code> characters of the
+     * carry, remove them from there and return the encoded result
+     *
+     * @param end
+     * @return
+     * @throws CharacterCodingException
+     */
+    private ByteBuffer replace(int end) throws CharacterCodingException {
+        StringBuilder sb = new StringBuilder(end + (end >> 3));
+        TokenChunks.replaceTokens(carry, end, tokenResolver, sb);
+        carry.delete(0, end);
+        return encoder.encode(CharBuffer.wrap(sb));
+    }
+
+    /**
+     *
+     */
+    private class DownstreamSubscription implements Flow.Subscription {
+
+        /**
+         *
+         * @param n
+         */
+        @Override
+        public void request(long n) {
+            synchronized (TokenReplacingProcessor.this) {
+                if (done) {
+                    return;
+                }
+                if (n <= 0) {
+                    if (upstream != null) {
+                        upstream.cancel();
+                    }
+                    fail(new IllegalArgumentException("n must be > 0"));
+                    return;
+                }
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                if (upstreamCompleted) {
+                    drainFinalChunk();
+                } else {
+                    requestUpstream();
+                }
+            }
+        }
+
+        /**
+         *
+         */
+        @Override
+        public void cancel() {
+            synchronized (TokenReplacingProcessor.this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                if (upstream != null) {
+                    upstream.cancel();
+                }
+            }
+        }
+    }
+}
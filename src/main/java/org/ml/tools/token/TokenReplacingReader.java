@@ -18,14 +18,61 @@ public class TokenReplacingReader extends Reader {
     protected StringBuilder tokenNameBuffer = new StringBuilder();
     protected String tokenValue;
     protected int tokenValueIndex = 0;
+    private final TokenDelimiter[] delimiters;
+    private final AhoCorasickMatcher matcher;
+    private final StringBuilder pending = new StringBuilder();
+    private int matcherState = AhoCorasickMatcher.START_STATE;
+    private TokenStatistics statistics;
+    private long charsIn = 0;
+    private long charsOut = 0;
 
     /**
      * @param source
      * @param resolver
      */
     public TokenReplacingReader(Reader source, ITokenResolver resolver) {
+        this(source, resolver, TokenDelimiter.DOLLAR_BRACES);
+    }
+
+    /**
+     * All token syntaxes given are recognized in a single pass over the source.
+     * If several prefixes can match at the same position, the one completed
+     * first wins, and for identical prefixes the first delimiter given.
+     *
+     * @param source
+     * @param resolver
+     * @param delimiters
+     */
+    public TokenReplacingReader(Reader source, ITokenResolver resolver, TokenDelimiter... delimiters) {
+        if (delimiters == null || delimiters.length == 0) {
+            throw new IllegalArgumentException("delimiters may not be null or empty");
+        }
         this.pushbackReader = new PushbackReader(source, 2);
         this.tokenResolver = resolver;
+        this.delimiters = delimiters.clone();
+        String[] prefixes = new String[delimiters.length];
+        for (int i = 0; i < delimiters.length; i++) {
+            if (delimiters[i] == null) {
+                throw new IllegalArgumentException("delimiters may not contain null");
+            }
+            prefixes[i] = delimiters[i].getPrefix();
+        }
+        this.matcher = new AhoCorasickMatcher(prefixes);
+    }
+
+    /**
+     * Switch on the instrumentation mode; the numbers are collected in the
+     * statistics instance given, which may be shared with other readers.
+     * Character counts are passed on after each token, at the end of the
+     * source and on close.
+     *
+     * @param statistics
+     */
+    public void setStatistics(TokenStatistics statistics) {
+        if (statistics == null) {
+            throw new IllegalArgumentException("statistics may not be null");
+        }
+        this.statistics = statistics;
     }
 
     /**
@@ -43,44 +90,160 @@ public class TokenReplacingReader extends Reader {
      */
     @Override
     public int read() throws IOException {
-        if (this.tokenValue != null) {
-            if (this.tokenValueIndex < this.tokenValue.length()) {
-                return this.tokenValue.charAt(this.tokenValueIndex++);
+        int data = nextChar();
+        if (this.statistics != null) {
+            if (data == -1) {
+                flushStatistics();
+            } else {
+                this.charsOut++;
             }
-            if (this.tokenValueIndex == this.tokenValue.length()) {
+        }
+        return data;
+    }
+
+    /**
+     *
+     * @return
+     * @throws IOException
+     */
+    private int nextChar() throws IOException {
+        while (true) {
+            if (this.tokenValue != null) {
+                if (this.tokenValueIndex < this.tokenValue.length()) {
+                    return this.tokenValue.charAt(this.tokenValueIndex++);
+                }
                 this.tokenValue = null;
                 this.tokenValueIndex = 0;
             }
+
+            int data = readSource();
+            if (data == -1) {
+                if (this.pending.length() == 0) {
+                    return -1;
+                }
+                setTokenValue(this.pending.toString());
+                this.pending.setLength(0);
+                this.matcherState = AhoCorasickMatcher.START_STATE;
+                continue;
+            }
+
+            //.... Fast path: a character that can not start or continue any prefix
+            int state = this.matcher.next(this.matcherState, (char) data);
+            if (state == AhoCorasickMatcher.START_STATE && this.pending.length() == 0) {
+                return data;
+            }
+            this.matcherState = state;
+            this.pending.append((char) data);
+
+            int index = this.matcher.match(state);
+            if (index >= 0) {
+                TokenDelimiter delimiter = this.delimiters[index];
+                this.pending.setLength(this.pending.length() - delimiter.getPrefix().length());
+                String literal = this.pending.toString();
+                this.pending.setLength(0);
+                this.matcherState = AhoCorasickMatcher.START_STATE;
+                setTokenValue(literal + readToken(delimiter));
+            } else {
+
+                //.... Everything in front of a potential prefix can be passed on
+                int keep = this.matcher.depth(state);
+                if (this.pending.length() > keep) {
+                    setTokenValue(this.pending.substring(0, this.pending.length() - keep));
+                    this.pending.delete(0, this.pending.length() - keep);
+                }
+            }
         }
+    }
 
-        int data = this.pushbackReader.read();
-        if (data != '$') {
-            return data;
+    /**
+     * Read the token name up to the suffix of the delimiter and resolve it.
+     * If the source ends before the suffix, the data read is returned
+     * unchanged.
+     *
+     * @param delimiter
+     * @return
+     * @throws IOException
+     */
+    private String readToken(TokenDelimiter delimiter) throws IOException {
+        String suffix = delimiter.getSuffix();
+        this.tokenNameBuffer.setLength(0);
+        while (true) {
+            int data = readSource();
+            if (data == -1) {
+                return delimiter.getPrefix() + this.tokenNameBuffer.toString();
+            }
+            this.tokenNameBuffer.append((char) data);
+            if (endsWith(this.tokenNameBuffer, suffix)) {
+                break;
+            }
+        }
+        this.tokenNameBuffer.setLength(this.tokenNameBuffer.length() - suffix.length());
+        String tokenName = this.tokenNameBuffer.toString();
+        String value;
+        if (this.statistics == null) {
+            value = this.tokenResolver.resolveToken(tokenName);
+        } else {
+            long start = System.nanoTime();
+            value = this.tokenResolver.resolveToken(tokenName);
+            this.statistics.recordToken(tokenName, System.nanoTime() - start, value != null);
+            flushStatistics();
+        }
+        if (value == null) {
+            return delimiter.format(tokenName);
         }
+        return value;
+    }
 
-        data = this.pushbackReader.read();
-        if (data != '{') {
-            this.pushbackReader.unread(data);
-            return '$';
+    /**
+     *
+     * @return
+     * @throws IOException
+     */
+    private int readSource() throws IOException {
+        int data = this.pushbackReader.read();
+        if (data != -1) {
+            this.charsIn++;
         }
-        this.tokenNameBuffer.delete(0, this.tokenNameBuffer.length());
+        return data;
+    }
 
-        data = this.pushbackReader.read();
-        while (data != '}') {
-            this.tokenNameBuffer.append((char) data);
-            data = this.pushbackReader.read();
+    /**
+     *
+     */
+    private void flushStatistics() {
+        if (this.statistics != null) {
+            this.statistics.recordChars(this.charsIn, this.charsOut);
         }
+        this.charsIn = 0;
+        this.charsOut = 0;
+    }
 
-        this.tokenValue = this.tokenResolver.resolveToken(this.tokenNameBuffer.toString());
+    /**
+     *
+     * @param value
+     */
+    private void setTokenValue(String value) {
+        this.tokenValue = value;
+        this.tokenValueIndex = 0;
+    }
 
-        if (this.tokenValue == null) {
-            this.tokenValue = "${" + this.tokenNameBuffer.toString() + "}";
+    /**
+     *
+     * @param sb
+     * @param suffix
+     * @return
+     */
+    private static boolean endsWith(StringBuilder sb, String suffix) {
+        int offset = sb.length() - suffix.length();
+        if (offset < 0) {
+            return false;
         }
-        if (this.tokenValue.length() == 0) {
-            return read();
+        for (int i = 0; i < suffix.length(); i++) {
+            if (sb.charAt(offset + i) != suffix.charAt(i)) {
+                return false;
+            }
         }
-        return this.tokenValue.charAt(this.tokenValueIndex++);
-
+        return true;
     }
 
     /**
@@ -124,6 +287,7 @@ public class TokenReplacingReader extends Reader {
      */
     @Override
     public void close() throws IOException {
+        flushStatistics();
         this.pushbackReader.close();
     }
 
@@ -0,0 +1,179 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 Dr. Matthias Laux.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.ml.tools.token;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Usage statistics for token replacement: how often each token name was seen,
+ * the time spent in the resolver, the number of characters read and written
+ * and the token names which could not be resolved and were therefore written
+ * out literally. An instance can be shared by several readers, also across
+ * threads.
+ *
+ * @author Dr. Matthias Laux
+ */
+public class TokenStatistics {
+
+    private final ConcurrentMap<String, LongAdder> tokenCounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> unresolvedCounts = new ConcurrentHashMap<>();
+    private final LongAdder resolverNanos = new LongAdder();
+    private final LongAdder charsIn = new LongAdder();
+    private final LongAdder charsOut = new LongAdder();
+
+    /**
+     *
+     * @param tokenName
+     * @param nanos
+     * @param resolved
+     */
+    void recordToken(String tokenName, long nanos, boolean resolved) {
+        tokenCounts.computeIfAbsent(tokenName, k -> new LongAdder()).increment();
+        resolverNanos.add(nanos);
+        if (!resolved) {
+            unresolvedCounts.computeIfAbsent(tokenName, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     *
+     * @param in
+     * @param out
+     */
+    void recordChars(long in, long out) {
+        charsIn.add(in);
+        charsOut.add(out);
+    }
+
+    /**
+     *
+     */
+    public void reset() {
+        tokenCounts.clear();
+        unresolvedCounts.clear();
+        resolverNanos.reset();
+        charsIn.reset();
+        charsOut.reset();
+    }
+
+    /**
+     * @return a consistent-enough copy of the current numbers
+     */
+    public Snapshot getSnapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     *
+     */
+    public static class Snapshot {
+
+        private final Map<String, Long> tokenCounts;
+        private final Map<String, Long> unresolvedCounts;
+        private final long resolverNanos;
+        private final long charsIn;
+        private final long charsOut;
+
+        /**
+         *
+         * @param statistics
+         */
+        private Snapshot(TokenStatistics statistics) {
+            this.tokenCounts = copy(statistics.tokenCounts);
+            this.unresolvedCounts = copy(statistics.unresolvedCounts);
+            this.resolverNanos = statistics.resolverNanos.sum();
+            this.charsIn = statistics.charsIn.sum();
+            this.charsOut = statistics.charsOut.sum();
+        }
+
+        /**
+         * @return the number of occurrences per token name
+         */
+        public Map<String, Long> getTokenCounts() {
+            return tokenCounts;
+        }
+
+        /**
+         * @return the number of occurrences per token name which fell back to
+         * the literal token in the output
+         */
+        public Map<String, Long> getUnresolvedCounts() {
+            return unresolvedCounts;
+        }
+
+        /**
+         * @return the total time spent in the resolver
+         */
+        public long getResolverNanos() {
+            return resolverNanos;
+        }
+
+        /**
+         * @return the number of characters read from the source
+         */
+        public long getCharsIn() {
+            return charsIn;
+        }
+
+        /**
+         * @return the number of characters returned to the caller
+         */
+        public long getCharsOut() {
+            return charsOut;
+        }
+
+        /**
+         *
+         * @return
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(300);
+            sb.append("chars in: ").append(charsIn);
+            sb.append(", chars out: ").append(charsOut);
+            sb.append(", resolver time (ms): ").append(resolverNanos / 1_000_000L);
+            sb.append("\ntokens: ").append(tokenCounts);
+            sb.append("\nunresolved: ").append(unresolvedCounts);
+            return sb.toString();
+        }
+
+        /**
+         *
+         * @param counts
+         * @return
+         */
+        private static Map<String, Long> copy(Map<String, LongAdder> counts) {
+            Map<String, Long> result = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().sum());
+            }
+            return Collections.unmodifiableMap(result);
+        }
+    }
+}